@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the {@link org.wiremock.extensions.state.internal.ContextManager} operations performed on every stateful request.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ContextManagerBenchmark {
+
+    @Benchmark
+    public void createOrUpdateContextState(StateFixture fixture, RequestState request) {
+        var requestId = request.nextRequestId();
+        fixture.contextManager.createOrUpdateContextState(
+            requestId,
+            fixture.randomContextName(),
+            Map.of("status", "updated", "lastRequest", requestId)
+        );
+        // as done by the TransactionEventListener once the request completed
+        fixture.transactionManager.deleteTransactions(requestId);
+    }
+
+    @Benchmark
+    public void createOrUpdateContextList(StateFixture fixture, RequestState request) {
+        var requestId = request.nextRequestId();
+        fixture.contextManager.createOrUpdateContextList(requestId, fixture.randomContextName(), list -> {
+            list.addLast(Map.of("id", requestId));
+            list.removeFirst();
+        });
+        fixture.transactionManager.deleteTransactions(requestId);
+    }
+
+    @Benchmark
+    public Optional<Context> getContextCopy(StateFixture fixture) {
+        return fixture.contextManager.getContextCopy(fixture.randomContextName());
+    }
+
+    @Benchmark
+    public Optional<Context> getContext(StateFixture fixture) {
+        return fixture.contextManager.getContext(fixture.randomContextName());
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.StateJournal;
+import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.TransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares write throughput without journal (in-memory baseline), with an asynchronous journal and with a synced journal. Run with
+ * several threads ({@code -Pjmh.threads=8}) to see the effect of group commits.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JournalBenchmark {
+
+    private static final int CONTEXT_COUNT = 1000;
+
+    @State(Scope.Benchmark)
+    public static class JournalFixture {
+
+        @Param({"none", "async", "sync"})
+        public String journalMode;
+
+        public TransactionManager transactionManager;
+        public ContextManager contextManager;
+        private StateJournal journal;
+        private Path directory;
+
+        @Setup(Level.Trial)
+        public void setupFixture() throws IOException {
+            directory = Files.createTempDirectory("state-journal");
+            if (!journalMode.equals("none")) {
+                journal = new StateJournal(directory.resolve("state.journal"), journalMode.equals("sync"));
+            }
+            transactionManager = new TransactionManager();
+            contextManager = new ContextManager(new CaffeineStore(), transactionManager, journal);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDownFixture() throws IOException {
+            if (journal != null) {
+                journal.close();
+            }
+            Files.deleteIfExists(directory.resolve("state.journal"));
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Benchmark
+    public void createOrUpdateContextState(JournalFixture fixture, RequestState request) {
+        var requestId = request.nextRequestId();
+        fixture.contextManager.createOrUpdateContextState(
+            requestId,
+            StateFixture.contextName(ThreadLocalRandom.current().nextInt(CONTEXT_COUNT)),
+            Map.of("status", "updated", "lastRequest", requestId)
+        );
+        // as done by the TransactionEventListener once the request completed
+        fixture.transactionManager.deleteTransactions(requestId);
+    }
+}
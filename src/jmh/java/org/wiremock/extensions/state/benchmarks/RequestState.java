@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.benchmarks;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.UUID;
+
+/**
+ * Hands out a new request ID per benchmark invocation, like WireMock assigns a new ID to each request. IDs are derived from a
+ * counter, so creating them does not dominate the measured operation.
+ */
+@State(Scope.Thread)
+public class RequestState {
+
+    private final String prefix = UUID.randomUUID() + "-";
+    private long count;
+
+    public String nextRequestId() {
+        return prefix + count++;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.TransactionManager;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Shared benchmark state: a store pre-populated with {@link #contextCount} contexts, each holding a few properties and a list
+ * of {@link #listLength} entries.
+ * <p>
+ * Sizes are combined in a single parameter, so combinations that do not fit into a default heap (100000 contexts with 5000
+ * entries each) are left out. List entries are shared between contexts.
+ */
+@State(Scope.Benchmark)
+public class StateFixture {
+
+    @Param({"1x0", "1x100", "1x5000", "1000x0", "1000x100", "1000x5000", "100000x0", "100000x100"})
+    public String size;
+
+    public int contextCount;
+    public int listLength;
+
+    public CaffeineStore store;
+    public TransactionManager transactionManager;
+    public ContextManager contextManager;
+
+    @Setup(Level.Trial)
+    public void setupFixture() {
+        var dimensions = size.split("x");
+        contextCount = Integer.parseInt(dimensions[0]);
+        listLength = Integer.parseInt(dimensions[1]);
+        store = new CaffeineStore();
+        transactionManager = new TransactionManager();
+        contextManager = new ContextManager(store, transactionManager);
+        var entries = new ArrayList<Map<String, String>>(listLength);
+        for (int j = 0; j < listLength; j++) {
+            entries.add(Map.of("id", String.valueOf(j), "firstName", "first" + j, "lastName", "last" + j));
+        }
+        var requestId = UUID.randomUUID().toString();
+        for (int i = 0; i < contextCount; i++) {
+            var contextName = contextName(i);
+            contextManager.createOrUpdateContextState(requestId, contextName, Map.of("id", String.valueOf(i), "status", "active"));
+            contextManager.createOrUpdateContextList(requestId, contextName, list -> list.addAll(entries));
+        }
+        transactionManager.deleteTransactions(requestId);
+    }
+
+    public String randomContextName() {
+        return contextName(ThreadLocalRandom.current().nextInt(contextCount));
+    }
+
+    public static String contextName(int index) {
+        return "context-" + index;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.benchmarks;
+
+import com.github.jknack.handlebars.Handlebars;
+import com.github.jknack.handlebars.Template;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.wiremock.extensions.state.extensions.StateHandlerbarHelper;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link StateHandlerbarHelper#apply(Object, com.github.jknack.handlebars.Options)}, invoked through pre-compiled
+ * templates so that only the helper itself is measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StateHandlerbarHelperBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class HelperState {
+        public Template property;
+        public Template listSize;
+        public Template listQuery;
+
+        @Setup(Level.Trial)
+        public void setupTemplates(StateFixture fixture) throws IOException {
+            var handlebars = new Handlebars().registerHelper("state", new StateHandlerbarHelper(fixture.contextManager));
+            property = handlebars.compileInline("{{state context=contextName property='status'}}");
+            listSize = handlebars.compileInline("{{state context=contextName property='listSize'}}");
+            listQuery = handlebars.compileInline("{{state context=contextName list='[-1].firstName' default='none'}}");
+        }
+    }
+
+    @Benchmark
+    public String property(StateFixture fixture, HelperState state) throws IOException {
+        return state.property.apply(Map.of("contextName", fixture.randomContextName()));
+    }
+
+    @Benchmark
+    public String listSize(StateFixture fixture, HelperState state) throws IOException {
+        return state.listSize.apply(Map.of("contextName", fixture.randomContextName()));
+    }
+
+    @Benchmark
+    public String listQuery(StateFixture fixture, HelperState state) throws IOException {
+        return state.listQuery.apply(Map.of("contextName", fixture.randomContextName()));
+    }
+}
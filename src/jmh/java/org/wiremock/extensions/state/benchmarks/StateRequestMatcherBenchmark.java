@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.benchmarks;
+
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.TemplateEngine;
+import com.github.tomakehurst.wiremock.http.ImmutableRequest;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.matching.MatchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.wiremock.extensions.state.extensions.StateRequestMatcher;
+import org.wiremock.extensions.state.extensions.StateTemplateHelperProviderExtension;
+import org.wiremock.extensions.state.internal.TemplateCache;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link StateRequestMatcher#match(Request, Parameters)}, which runs for every candidate stub on every request.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StateRequestMatcherBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class MatcherState {
+        public StateRequestMatcher matcher;
+        public Parameters hasContext;
+        public Parameters hasNotContext;
+        public Parameters propertyMatch;
+        public Parameters listMatch;
+
+        @Setup(Level.Trial)
+        public void setupMatcher(StateFixture fixture) {
+            var helperProvider = new StateTemplateHelperProviderExtension(fixture.contextManager);
+            var templateEngine = new TemplateEngine(helperProvider.provideTemplateHelpers(), null, Collections.emptySet(), false);
+            matcher = new StateRequestMatcher(fixture.contextManager, new TemplateCache(templateEngine));
+            hasContext = Parameters.from(Map.of("hasContext", "{{request.pathSegments.[1]}}"));
+            hasNotContext = Parameters.from(Map.of("hasNotContext", "{{request.pathSegments.[1]}}"));
+            propertyMatch = Parameters.from(Map.of(
+                "hasContext", "{{request.pathSegments.[1]}}",
+                "property", Map.of("status", Map.of("equalTo", "active")),
+                "updateCountMoreThan", "0"
+            ));
+            listMatch = Parameters.from(Map.of(
+                "hasContext", "{{request.pathSegments.[1]}}",
+                "listSizeMoreThan", "0",
+                "list", Map.of("last", Map.of("firstName", Map.of("matches", "first.*")))
+            ));
+        }
+    }
+
+    private static Request request(StateFixture fixture) {
+        return ImmutableRequest.create()
+            .withAbsoluteUrl("http://localhost/benchmark/" + fixture.randomContextName())
+            .withMethod(RequestMethod.GET)
+            .build();
+    }
+
+    @Benchmark
+    public MatchResult hasContext(StateFixture fixture, MatcherState state) {
+        return state.matcher.match(request(fixture), state.hasContext);
+    }
+
+    @Benchmark
+    public MatchResult hasNotContext(StateFixture fixture, MatcherState state) {
+        return state.matcher.match(request(fixture), state.hasNotContext);
+    }
+
+    @Benchmark
+    public MatchResult propertyMatch(StateFixture fixture, MatcherState state) {
+        return state.matcher.match(request(fixture), state.propertyMatch);
+    }
+
+    @Benchmark
+    public MatchResult listMatch(StateFixture fixture, MatcherState state) {
+        return state.matcher.match(request(fixture), state.listMatch);
+    }
+}
@@ -17,10 +17,13 @@ package org.wiremock.extensions.state;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.github.tomakehurst.wiremock.store.Store;
+import org.wiremock.extensions.state.internal.model.Context;
 
 import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 public class CaffeineStore implements Store<String, Object> {
@@ -34,11 +37,37 @@ public class CaffeineStore implements Store<String, Object> {
     }
 
     public CaffeineStore(int expirationSeconds) {
-        var builder = Caffeine.newBuilder();
-        if (expirationSeconds == 0) {
-            builder.expireAfterWrite(Duration.ofSeconds(DEFAULT_EXPIRATION_SECONDS));
-        } else {
-            builder.expireAfterWrite(Duration.ofSeconds(expirationSeconds));
+        this(expirationSeconds, 0);
+    }
+
+    /**
+     * Creates a store bounded by the estimated memory size of its entries.
+     * <p>
+     * When the estimated size exceeds the maximum, entries are evicted, starting with the ones that are least likely to be used again.
+     *
+     * @param expirationSeconds  Expiration after write in seconds. {@code 0} uses the default of 60 minutes.
+     * @param maximumWeightBytes Maximum estimated size of all entries in bytes. {@code 0} does not bound the size.
+     */
+    public CaffeineStore(int expirationSeconds, long maximumWeightBytes) {
+        this(expirationSeconds, maximumWeightBytes, false);
+    }
+
+    /**
+     * Creates a store with the given expiration policy.
+     * <p>
+     * Contexts with an expiration of their own (see {@link Context#getExpirationSeconds()}) use that instead of the default.
+     *
+     * @param expirationSeconds  Default expiration in seconds. {@code 0} uses the default of 60 minutes.
+     * @param maximumWeightBytes Maximum estimated size of all entries in bytes. {@code 0} does not bound the size.
+     * @param expireAfterAccess  {@code true} to restart the expiration on each read, {@code false} to only restart it on write.
+     */
+    public CaffeineStore(int expirationSeconds, long maximumWeightBytes, boolean expireAfterAccess) {
+        var defaultExpiration = Duration.ofSeconds(expirationSeconds == 0 ? DEFAULT_EXPIRATION_SECONDS : expirationSeconds);
+        var builder = Caffeine.newBuilder()
+            .recordStats()
+            .expireAfter(new ContextExpiry(defaultExpiration, expireAfterAccess));
+        if (maximumWeightBytes > 0) {
+            builder.maximumWeight(maximumWeightBytes).weigher(new ContextWeigher());
         }
         cache = builder.build();
     }
@@ -67,4 +96,63 @@ public class CaffeineStore implements Store<String, Object> {
     public void clear() {
         cache.invalidateAll();
     }
-}
+
+    /**
+     * @return Number of entries evicted due to the size bound or expiration. Does not include removed entries.
+     */
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    /**
+     * @return Sum of the estimated sizes (in bytes) of all evicted entries. Only tracked if the store is bounded by size.
+     */
+    public long getEvictionWeight() {
+        return cache.stats().evictionWeight();
+    }
+
+    /**
+     * @return Estimated size of all entries in bytes, or {@link Optional#empty()} if the store is not bounded by size.
+     */
+    public Optional<Long> getWeightedSize() {
+        return cache.policy().eviction().flatMap(it -> {
+            var weightedSize = it.weightedSize();
+            return weightedSize.isPresent() ? Optional.of(weightedSize.getAsLong()) : Optional.empty();
+        });
+    }
+
+    private static class ContextExpiry implements Expiry<String, Object> {
+        private final long defaultExpirationNanos;
+        private final boolean expireAfterAccess;
+
+        ContextExpiry(Duration defaultExpiration, boolean expireAfterAccess) {
+            this.defaultExpirationNanos = defaultExpiration.toNanos();
+            this.expireAfterAccess = expireAfterAccess;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Object value, long currentTime) {
+            return expirationOf(value);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Object value, long currentTime, long currentDuration) {
+            return expirationOf(value);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Object value, long currentTime, long currentDuration) {
+            return expireAfterAccess ? expirationOf(value) : currentDuration;
+        }
+
+        private long expirationOf(Object value) {
+            if (value instanceof Context) {
+                var expirationSeconds = ((Context) value).getExpirationSeconds();
+                if (expirationSeconds != null) {
+                    return TimeUnit.SECONDS.toNanos(Math.max(0, expirationSeconds));
+                }
+            }
+            return defaultExpirationNanos;
+        }
+    }
+}
\ No newline at end of file
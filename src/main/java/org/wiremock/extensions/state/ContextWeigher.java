@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import org.wiremock.extensions.state.internal.model.CompactMap;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.util.Map;
+
+/**
+ * Estimates the heap size of store entries in bytes.
+ * <p>
+ * The estimate assumes compact (latin-1) strings and a 64-bit JVM with compressed pointers. It's meant to bound memory usage,
+ * not to be exact.
+ */
+class ContextWeigher implements Weigher<String, Object> {
+
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int STRING_OVERHEAD = 40;
+    private static final int MAP_OVERHEAD = 64;
+    private static final int MAP_ENTRY_OVERHEAD = 36;
+    private static final int COMPACT_MAP_OVERHEAD = 2 * OBJECT_OVERHEAD;
+    private static final int REFERENCE_SIZE = 4;
+    // array slot, including unused capacity of the ring buffer
+    private static final int LIST_ELEMENT_OVERHEAD = 8;
+    private static final int CONTEXT_OVERHEAD = OBJECT_OVERHEAD + 3 * MAP_OVERHEAD + 8;
+
+    @Override
+    public int weigh(String key, Object value) {
+        long weight = weigh(key);
+        if (value instanceof Context) {
+            weight += weigh((Context) value);
+        } else {
+            weight += OBJECT_OVERHEAD;
+        }
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    static long weigh(Context context) {
+        long weight = CONTEXT_OVERHEAD + weigh(context.getContextName()) + weigh(context.getProperties());
+        for (Map<String, String> entry : context.getList()) {
+            weight += LIST_ELEMENT_OVERHEAD + weigh(entry);
+        }
+        return weight;
+    }
+
+    private static long weigh(Map<String, String> map) {
+        if (map instanceof CompactMap) {
+            // keys are shared with other maps
+            long weight = COMPACT_MAP_OVERHEAD;
+            for (String value : map.values()) {
+                weight += REFERENCE_SIZE + weigh(value);
+            }
+            return weight;
+        }
+        long weight = MAP_OVERHEAD;
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            weight += MAP_ENTRY_OVERHEAD + weigh(entry.getKey()) + weigh(entry.getValue());
+        }
+        return weight;
+    }
+
+    private static long weigh(String string) {
+        return string == null ? 0 : STRING_OVERHEAD + string.length();
+    }
+}
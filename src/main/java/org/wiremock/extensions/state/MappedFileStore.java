@@ -0,0 +1,460 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import com.github.tomakehurst.wiremock.store.Store;
+import org.wiremock.extensions.state.internal.ContextCodec;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static com.github.tomakehurst.wiremock.common.LocalNotifier.notifier;
+
+/**
+ * Store persisting contexts in memory-mapped files, so that state survives restarts.
+ * <p>
+ * Every change is appended as record to a log, split into segment files of 64 MiB. Contexts are read from the mapped files, only the
+ * key index is kept on-heap. On start, the index is rebuilt by scanning the mapped segments - incomplete or corrupt records at the
+ * end of the log (e.g. after a crash) are ignored. If more than half of the log is outdated, it's compacted: on start and, once the
+ * log is larger than a segment, after a write. Compaction rewrites all current contexts and blocks other reads and writes meanwhile.
+ * <p>
+ * Values other than contexts are kept on-heap only and not persisted. This store does not expire entries.
+ */
+public class MappedFileStore implements Store<String, Object>, AutoCloseable {
+
+    /**
+     * When changes are forced to disk. Changes are visible to the operating system immediately, so they survive a crash of the JVM
+     * with any policy - the policy only matters on a crash of the whole system.
+     */
+    public enum SyncPolicy {
+        /**
+         * Leave flushing to the operating system.
+         */
+        NEVER,
+        /**
+         * Force changes to disk once per second.
+         */
+        INTERVAL,
+        /**
+         * Force changes to disk after each write.
+         */
+        ALWAYS
+    }
+
+    private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final long SYNC_INTERVAL_MILLIS = 1000;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte CLEAR = 3;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final SyncPolicy syncPolicy;
+    private final Map<String, Long> contextAddresses = new ConcurrentHashMap<>();
+    private final Map<String, Object> heapEntries = new ConcurrentHashMap<>();
+    private final Map<Integer, Segment> segments = new ConcurrentHashMap<>();
+    /**
+     * Shared for reading, exclusive for compacting - so that no segment is removed while it's being read.
+     */
+    private final ReadWriteLock segmentLock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService syncExecutor;
+    private Segment current;
+    private long liveBytes;
+    private long totalBytes;
+
+    public MappedFileStore(Path directory) {
+        this(directory, SyncPolicy.INTERVAL);
+    }
+
+    public MappedFileStore(Path directory, SyncPolicy syncPolicy) {
+        this(directory, syncPolicy, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the store in the given directory, loading all contexts persisted there.
+     *
+     * @param directory   Directory holding the segment files. Created if it does not exist.
+     * @param syncPolicy  When changes are forced to disk.
+     * @param segmentSize Size of new segment files in bytes. Larger contexts get a segment of their own.
+     */
+    public MappedFileStore(Path directory, SyncPolicy syncPolicy, int segmentSize) {
+        this.directory = directory;
+        this.syncPolicy = syncPolicy;
+        this.segmentSize = segmentSize;
+        synchronized (this) {
+            load();
+            if (totalBytes > 0 && liveBytes < totalBytes / 2) {
+                compact();
+            }
+        }
+        if (syncPolicy == SyncPolicy.INTERVAL) {
+            syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "state-extension-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncExecutor.scheduleWithFixedDelay(this::sync, SYNC_INTERVAL_MILLIS, SYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            syncExecutor = null;
+        }
+    }
+
+    @Override
+    public Stream<String> getAllKeys() {
+        return Stream.concat(contextAddresses.keySet().stream(), heapEntries.keySet().stream());
+    }
+
+    @Override
+    public Optional<Object> get(String key) {
+        byte[] payload;
+        segmentLock.readLock().lock();
+        try {
+            var address = contextAddresses.get(key);
+            if (address == null) {
+                return Optional.ofNullable(heapEntries.get(key));
+            }
+            payload = readPayload(address);
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+        return Optional.of(ContextCodec.decode(payload));
+    }
+
+    @Override
+    public void put(String key, Object content) {
+        if (!(content instanceof Context)) {
+            heapEntries.put(key, content);
+            if (contextAddresses.containsKey(key)) {
+                removeContext(key);
+            }
+            return;
+        }
+        var payload = ContextCodec.encode((Context) content);
+        segmentLock.readLock().lock();
+        try {
+            synchronized (this) {
+                var address = append(PUT, key, payload);
+                var previousAddress = contextAddresses.put(key, address);
+                liveBytes += recordSize(address);
+                if (previousAddress != null) {
+                    liveBytes -= recordSize(previousAddress);
+                }
+            }
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+        heapEntries.remove(key);
+        compactIfNeeded();
+    }
+
+    @Override
+    public void remove(String key) {
+        heapEntries.remove(key);
+        if (contextAddresses.containsKey(key)) {
+            removeContext(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        heapEntries.clear();
+        segmentLock.readLock().lock();
+        try {
+            synchronized (this) {
+                append(CLEAR, "", new byte[0]);
+                contextAddresses.clear();
+                liveBytes = 0;
+            }
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites all current contexts to new segments and deletes the old ones.
+     */
+    public void compact() {
+        segmentLock.writeLock().lock();
+        try {
+            synchronized (this) {
+                rewrite();
+            }
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forces all changes to disk.
+     */
+    public void sync() {
+        segments.values().forEach(it -> it.buffer.force());
+    }
+
+    @Override
+    public void close() {
+        if (syncExecutor != null) {
+            syncExecutor.shutdown();
+        }
+        sync();
+    }
+
+    /**
+     * Compacts the log if more than half of it is outdated. Small logs are left alone, as rewriting them would not free a segment.
+     */
+    private void compactIfNeeded() {
+        synchronized (this) {
+            if (!isCompactionNeeded()) {
+                return;
+            }
+        }
+        segmentLock.writeLock().lock();
+        try {
+            synchronized (this) {
+                // another writer may have compacted meanwhile
+                if (isCompactionNeeded()) {
+                    rewrite();
+                }
+            }
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+    }
+
+    private boolean isCompactionNeeded() {
+        return totalBytes > segmentSize && liveBytes < totalBytes / 2;
+    }
+
+    private void rewrite() {
+        var oldSegments = new ArrayList<>(segments.values());
+        var addresses = new HashMap<>(contextAddresses);
+        current = createSegment(current.id + 1, segmentSize);
+        totalBytes = 0;
+        liveBytes = 0;
+        // supersedes the old segments in case they cannot be deleted
+        append(CLEAR, "", new byte[0]);
+        addresses.forEach((key, address) -> {
+            var newAddress = append(PUT, key, readPayload(address));
+            contextAddresses.put(key, newAddress);
+            liveBytes += recordSize(newAddress);
+        });
+        current.buffer.force();
+        oldSegments.forEach(this::deleteSegment);
+    }
+
+    private void removeContext(String key) {
+        segmentLock.readLock().lock();
+        try {
+            synchronized (this) {
+                var previousAddress = contextAddresses.remove(key);
+                if (previousAddress != null) {
+                    append(REMOVE, key, new byte[0]);
+                    liveBytes -= recordSize(previousAddress);
+                }
+            }
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+        compactIfNeeded();
+    }
+
+    private void load() {
+        try {
+            Files.createDirectories(directory);
+            try (var files = Files.list(directory)) {
+                var segmentFiles = files
+                    .filter(it -> it.getFileName().toString().matches("segment-\\d{8}\\.log"))
+                    .sorted()
+                    .collect(Collectors.toList());
+                for (var segmentFile : segmentFiles) {
+                    var fileName = segmentFile.getFileName().toString();
+                    var id = Integer.parseInt(fileName.substring("segment-".length(), fileName.length() - ".log".length()));
+                    current = mapSegment(id, segmentFile, Files.size(segmentFile));
+                    replay(current);
+                }
+            }
+            if (current == null) {
+                current = createSegment(0, segmentSize);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void replay(Segment segment) {
+        var buffer = segment.buffer.duplicate();
+        int position = 0;
+        while (position + RECORD_HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > buffer.capacity()) {
+                break;
+            }
+            var body = new byte[length];
+            buffer.position(position + RECORD_HEADER_SIZE);
+            buffer.get(body);
+            if (crc(body) != buffer.getInt(position + Integer.BYTES)) {
+                notifier().error(String.format("State store: ignoring corrupt record in %s at %d", segment.path, position));
+                break;
+            }
+            apply(address(segment.id, position), body);
+            position += RECORD_HEADER_SIZE + length;
+        }
+        segment.position = position;
+    }
+
+    private void apply(long address, byte[] body) {
+        var buffer = ByteBuffer.wrap(body);
+        var type = buffer.get();
+        var keyLength = buffer.getInt();
+        var key = new String(body, buffer.position(), keyLength, StandardCharsets.UTF_8);
+        totalBytes += RECORD_HEADER_SIZE + body.length;
+        if (type == PUT) {
+            var previousAddress = contextAddresses.put(key, address);
+            liveBytes += RECORD_HEADER_SIZE + body.length;
+            if (previousAddress != null) {
+                liveBytes -= recordSize(previousAddress);
+            }
+        } else if (type == REMOVE) {
+            var previousAddress = contextAddresses.remove(key);
+            if (previousAddress != null) {
+                liveBytes -= recordSize(previousAddress);
+            }
+        } else if (type == CLEAR) {
+            contextAddresses.clear();
+            liveBytes = 0;
+        }
+    }
+
+    /**
+     * Appends a record: {@code [length][crc][type][key length][key][payload]}. The length is written last, so that a partially written
+     * record is treated as end of the log.
+     */
+    private long append(byte type, String key, byte[] payload) {
+        var keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        var body = ByteBuffer.allocate(1 + Integer.BYTES + keyBytes.length + payload.length)
+            .put(type)
+            .putInt(keyBytes.length)
+            .put(keyBytes)
+            .put(payload)
+            .array();
+        var recordSize = RECORD_HEADER_SIZE + body.length;
+        // keep room for a zero length marking the end of the segment
+        if (current.position + recordSize + Integer.BYTES > current.buffer.capacity()) {
+            current = createSegment(current.id + 1, Math.max(segmentSize, recordSize + Integer.BYTES));
+        }
+        var buffer = current.buffer.duplicate();
+        buffer.position(current.position + Integer.BYTES);
+        buffer.putInt(crc(body)).put(body);
+        buffer.putInt(current.position, body.length);
+        var address = address(current.id, current.position);
+        current.position += recordSize;
+        totalBytes += recordSize;
+        if (syncPolicy == SyncPolicy.ALWAYS) {
+            current.buffer.force();
+        }
+        return address;
+    }
+
+    private byte[] readPayload(long address) {
+        var buffer = segments.get((int) (address >>> 32)).buffer.duplicate();
+        var position = (int) address;
+        var length = buffer.getInt(position);
+        var keyLength = buffer.getInt(position + RECORD_HEADER_SIZE + 1);
+        var payloadOffset = RECORD_HEADER_SIZE + 1 + Integer.BYTES + keyLength;
+        var payload = new byte[RECORD_HEADER_SIZE + length - payloadOffset];
+        buffer.position(position + payloadOffset);
+        buffer.get(payload);
+        return payload;
+    }
+
+    private int recordSize(long address) {
+        return RECORD_HEADER_SIZE + segments.get((int) (address >>> 32)).buffer.getInt((int) address);
+    }
+
+    private Segment createSegment(int id, int size) {
+        try {
+            return mapSegment(id, directory.resolve(String.format("segment-%08d.log", id)), size);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private Segment mapSegment(int id, Path path, long size) throws IOException {
+        try (var file = new RandomAccessFile(path.toFile(), "rw")) {
+            if (file.length() < size) {
+                file.setLength(size);
+            }
+            var segment = new Segment(id, path, file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size));
+            segments.put(id, segment);
+            return segment;
+        }
+    }
+
+    private void deleteSegment(Segment segment) {
+        segments.remove(segment.id);
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException ex) {
+            // e.g. on platforms not allowing to delete mapped files - the segment is superseded by the compacted log anyway
+            notifier().error(String.format("State store: cannot delete %s: %s", segment.path, ex.getMessage()));
+        }
+    }
+
+    private static long address(int segmentId, int position) {
+        return (long) segmentId << 32 | position;
+    }
+
+    private static int crc(byte[] body) {
+        var crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private static class Segment {
+        private final int id;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int position;
+
+        Segment(int id, Path path, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+}
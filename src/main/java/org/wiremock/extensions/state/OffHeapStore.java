@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import com.github.tomakehurst.wiremock.store.Store;
+import org.wiremock.extensions.state.internal.ContextCodec;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Store keeping contexts outside the heap.
+ * <p>
+ * Contexts are serialized with a compact binary encoding into direct memory, so the garbage collector only sees the key index.
+ * Every read returns a new {@link Context} instance decoded from direct memory. Other values are kept on-heap.
+ * <p>
+ * Memory is allocated in slabs of 4 MiB, split into blocks of power-of-two sizes. Contexts larger than 1 MiB get a dedicated buffer.
+ * Freed blocks are reused for new contexts, slabs are only released on {@link #clear()}.
+ * <p>
+ * This store does not expire entries.
+ */
+public class OffHeapStore implements Store<String, Object> {
+
+    private static final int HEADER_SIZE = Integer.BYTES;
+
+    private final Map<String, Long> contextAddresses = new ConcurrentHashMap<>();
+    private final Map<String, Object> heapEntries = new ConcurrentHashMap<>();
+    /**
+     * Shared for accessing blocks, exclusive for releasing them - so that no block is reused while it's being read.
+     */
+    private final ReadWriteLock blockLock = new ReentrantReadWriteLock();
+    private final SlabAllocator allocator;
+
+    public OffHeapStore() {
+        this(0);
+    }
+
+    /**
+     * @param maximumBytes Maximum direct memory used by this store in bytes. {@code 0} does not bound the memory (beyond the JVM's
+     *                     limit for direct memory).
+     */
+    public OffHeapStore(long maximumBytes) {
+        this.allocator = new SlabAllocator(maximumBytes);
+    }
+
+    @Override
+    public Stream<String> getAllKeys() {
+        return Stream.concat(contextAddresses.keySet().stream(), heapEntries.keySet().stream());
+    }
+
+    @Override
+    public Optional<Object> get(String key) {
+        byte[] bytes;
+        blockLock.readLock().lock();
+        try {
+            var address = contextAddresses.get(key);
+            if (address == null) {
+                return Optional.ofNullable(heapEntries.get(key));
+            }
+            var buffer = allocator.bufferAt(address);
+            bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+        } finally {
+            blockLock.readLock().unlock();
+        }
+        return Optional.of(ContextCodec.decode(bytes));
+    }
+
+    @Override
+    public void put(String key, Object content) {
+        if (!(content instanceof Context)) {
+            heapEntries.put(key, content);
+            removeContext(key);
+            return;
+        }
+        var bytes = ContextCodec.encode((Context) content);
+        Long previousAddress;
+        long generation;
+        blockLock.readLock().lock();
+        try {
+            generation = allocator.getGeneration();
+            var address = allocator.allocate(HEADER_SIZE + bytes.length);
+            allocator.bufferAt(address).putInt(bytes.length).put(bytes);
+            previousAddress = contextAddresses.put(key, address);
+            heapEntries.remove(key);
+        } finally {
+            blockLock.readLock().unlock();
+        }
+        if (previousAddress != null) {
+            release(previousAddress, generation);
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        heapEntries.remove(key);
+        removeContext(key);
+    }
+
+    @Override
+    public void clear() {
+        blockLock.writeLock().lock();
+        try {
+            contextAddresses.clear();
+            heapEntries.clear();
+            allocator.reset();
+        } finally {
+            blockLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return Direct memory currently allocated by this store in bytes, including unused blocks.
+     */
+    public long getAllocatedBytes() {
+        return allocator.getAllocatedBytes();
+    }
+
+    private void removeContext(String key) {
+        Long address;
+        long generation;
+        blockLock.readLock().lock();
+        try {
+            generation = allocator.getGeneration();
+            address = contextAddresses.remove(key);
+        } finally {
+            blockLock.readLock().unlock();
+        }
+        if (address != null) {
+            release(address, generation);
+        }
+    }
+
+    /**
+     * Releases a block that was removed from the addresses while the allocator had the given generation. The shared lock is dropped
+     * before, so the store might have been cleared in between - the block is gone then.
+     */
+    private void release(long address, long generation) {
+        blockLock.writeLock().lock();
+        try {
+            allocator.free(address, generation);
+        } finally {
+            blockLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Hands out blocks of direct memory, addressed by {@code slabId << 32 | offset}.
+     */
+    private static class SlabAllocator {
+        private static final int SLAB_SIZE = 4 * 1024 * 1024;
+        private static final int MIN_BLOCK_SHIFT = 6;
+        private static final int MAX_BLOCK_SHIFT = 20;
+        private static final int DEDICATED = -1;
+
+        private final long maximumBytes;
+        private volatile ByteBuffer[] slabs;
+        private int[] slabBlockShifts;
+        private int slabCount;
+        private LongStack freeSlabIds;
+        private LongStack[] freeBlocks;
+        private long allocatedBytes;
+        /**
+         * Incremented on every reset, so that blocks handed out before are not released into the new slabs.
+         */
+        private long generation;
+
+        SlabAllocator(long maximumBytes) {
+            this.maximumBytes = maximumBytes;
+            reset();
+        }
+
+        synchronized void reset() {
+            slabs = new ByteBuffer[16];
+            slabBlockShifts = new int[16];
+            slabCount = 0;
+            freeSlabIds = new LongStack();
+            freeBlocks = new LongStack[MAX_BLOCK_SHIFT + 1];
+            for (int i = MIN_BLOCK_SHIFT; i <= MAX_BLOCK_SHIFT; i++) {
+                freeBlocks[i] = new LongStack();
+            }
+            allocatedBytes = 0;
+            generation++;
+        }
+
+        synchronized long getGeneration() {
+            return generation;
+        }
+
+        synchronized long allocate(int size) {
+            if (size > 1 << MAX_BLOCK_SHIFT) {
+                var slabId = addSlab(size, DEDICATED);
+                return (long) slabId << 32;
+            }
+            var shift = Math.max(MIN_BLOCK_SHIFT, 32 - Integer.numberOfLeadingZeros(size - 1));
+            var free = freeBlocks[shift];
+            if (free.isEmpty()) {
+                var slabId = addSlab(SLAB_SIZE, shift);
+                for (int offset = SLAB_SIZE - (1 << shift); offset >= 0; offset -= 1 << shift) {
+                    free.push((long) slabId << 32 | offset);
+                }
+            }
+            return free.pop();
+        }
+
+        synchronized void free(long address, long generation) {
+            if (generation != this.generation) {
+                return;
+            }
+            var slabId = (int) (address >>> 32);
+            var shift = slabBlockShifts[slabId];
+            if (shift == DEDICATED) {
+                allocatedBytes -= slabs[slabId].capacity();
+                slabs[slabId] = null;
+                freeSlabIds.push(slabId);
+            } else {
+                freeBlocks[shift].push(address);
+            }
+        }
+
+        /**
+         * @return A buffer positioned at the start of the given block.
+         */
+        ByteBuffer bufferAt(long address) {
+            var buffer = slabs[(int) (address >>> 32)].duplicate();
+            buffer.position((int) address);
+            return buffer;
+        }
+
+        synchronized long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        private int addSlab(int size, int blockShift) {
+            if (maximumBytes > 0 && allocatedBytes + size > maximumBytes) {
+                throw new IllegalStateException(String.format("Off-heap store exceeds its maximum size of %d bytes", maximumBytes));
+            }
+            int slabId;
+            if (freeSlabIds.isEmpty()) {
+                slabId = slabCount++;
+                if (slabId == slabs.length) {
+                    slabBlockShifts = Arrays.copyOf(slabBlockShifts, slabs.length * 2);
+                    slabs = Arrays.copyOf(slabs, slabs.length * 2);
+                }
+            } else {
+                slabId = (int) freeSlabIds.pop();
+            }
+            var newSlabs = slabs;
+            newSlabs[slabId] = ByteBuffer.allocateDirect(size);
+            slabBlockShifts[slabId] = blockShift;
+            slabs = newSlabs;
+            allocatedBytes += size;
+            return slabId;
+        }
+    }
+
+    private static class LongStack {
+        private long[] values = new long[64];
+        private int size = 0;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long pop() {
+            return values[--size];
+        }
+    }
+}
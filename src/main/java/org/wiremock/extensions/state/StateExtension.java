@@ -22,14 +22,18 @@ import com.github.tomakehurst.wiremock.extension.responsetemplating.TemplateEngi
 import com.github.tomakehurst.wiremock.store.Store;
 import org.wiremock.extensions.state.extensions.DeleteStateEventListener;
 import org.wiremock.extensions.state.extensions.RecordStateEventListener;
+import org.wiremock.extensions.state.extensions.StateAdminApiExtension;
 import org.wiremock.extensions.state.extensions.StateRequestMatcher;
 import org.wiremock.extensions.state.extensions.StateTemplateHelperProviderExtension;
 import org.wiremock.extensions.state.extensions.TransactionEventListener;
+import org.wiremock.extensions.state.internal.AsyncRecorder;
 import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.TemplateCache;
 import org.wiremock.extensions.state.internal.TransactionManager;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * Factory to register all extensions for handling state.
@@ -56,17 +60,68 @@ public class StateExtension implements ExtensionFactory {
     private final DeleteStateEventListener deleteStateEventListener;
     private final TransactionEventListener transactionEventListener;
     private final StateRequestMatcher stateRequestMatcher;
+    private final StateAdminApiExtension stateAdminApiExtension;
+    private final TemplateCache templateCache;
+    private final ContextManager contextManager;
 
     public StateExtension(Store<String, Object> store) {
-        var transactionManager = new TransactionManager(store);
-        var contextManager = new ContextManager(store, transactionManager);
+        this(store, new Options());
+    }
+
+    /**
+     * Creates the extension with additional options, e.g.:
+     *
+     * <pre>{@code
+     *     new StateExtension(store, new StateExtension.Options().journal(journal).asyncRecording(true))
+     * }</pre>
+     *
+     * @param store   Store for the contexts.
+     * @param options Options of the extension.
+     */
+    public StateExtension(Store<String, Object> store, Options options) {
+        var journal = options.journal;
+        var transactionManager = new TransactionManager();
+        if (journal != null) {
+            var replayId = UUID.randomUUID().toString();
+            var replayManager = new ContextManager(store, transactionManager);
+            journal.replay(context -> replayManager.restoreContext(replayId, context));
+            transactionManager.deleteTransactions(replayId);
+        }
+        this.contextManager = new ContextManager(
+            store,
+            transactionManager,
+            journal,
+            options.interner,
+            options.asyncRecording ? new AsyncRecorder() : null
+        );
         this.stateTemplateHelperProviderExtension = new StateTemplateHelperProviderExtension(contextManager);
         var templateEngine = new TemplateEngine(stateTemplateHelperProviderExtension.provideTemplateHelpers(), null, Collections.emptySet(), false);
+        this.templateCache = new TemplateCache(templateEngine);
 
-        this.recordStateEventListener = new RecordStateEventListener(contextManager, templateEngine);
-        this.deleteStateEventListener = new DeleteStateEventListener(contextManager, templateEngine);
+        this.recordStateEventListener = new RecordStateEventListener(contextManager, templateCache);
+        this.deleteStateEventListener = new DeleteStateEventListener(contextManager, templateCache);
         this.transactionEventListener = new TransactionEventListener(transactionManager);
-        this.stateRequestMatcher = new StateRequestMatcher(contextManager, templateEngine);
+        this.stateRequestMatcher = new StateRequestMatcher(contextManager, templateCache);
+        this.stateAdminApiExtension = new StateAdminApiExtension(contextManager, transactionManager);
+    }
+
+    /**
+     * Returns the manager of the contexts, e.g. to inspect contexts in tests. It holds the index of context names, so contexts
+     * should be listed and deleted through this manager rather than a separate one on the same store.
+     *
+     * @return The context manager used by all state extensions.
+     */
+    public ContextManager getContextManager() {
+        return contextManager;
+    }
+
+    /**
+     * Returns the cache of compiled templates, e.g. to monitor its hit and miss counts.
+     *
+     * @return The template cache shared by all state extensions.
+     */
+    public TemplateCache getTemplateCache() {
+        return templateCache;
     }
 
     @Override
@@ -76,7 +131,52 @@ public class StateExtension implements ExtensionFactory {
             deleteStateEventListener,
             transactionEventListener,
             stateRequestMatcher,
-            stateTemplateHelperProviderExtension
+            stateTemplateHelperProviderExtension,
+            stateAdminApiExtension
         );
     }
+
+    /**
+     * Options of the {@link StateExtension}. All options are disabled by default.
+     */
+    public static class Options {
+        private StateJournal journal;
+        private StringInterner interner;
+        private boolean asyncRecording;
+
+        /**
+         * Writes all changes to a journal. Contexts recovered from the journal are restored into the store.
+         *
+         * @param journal Journal to write all changes to.
+         * @return These options.
+         */
+        public Options journal(StateJournal journal) {
+            this.journal = journal;
+            return this;
+        }
+
+        /**
+         * Interns property keys and values, so equal strings are shared between contexts.
+         *
+         * @param interner Interner for property keys and values.
+         * @return These options.
+         */
+        public Options interner(StringInterner interner) {
+            this.interner = interner;
+            return this;
+        }
+
+        /**
+         * Applies changes of {@code recordState} and single context {@code deleteState} in the background instead of delaying the
+         * response. Changes of a context keep their order and all reads of a context wait for its pending changes. Background
+         * changes are applied and the workers stopped when WireMock stops.
+         *
+         * @param asyncRecording {@code true} to apply changes in the background.
+         * @return These options.
+         */
+        public Options asyncRecording(boolean asyncRecording) {
+            this.asyncRecording = asyncRecording;
+            return this;
+        }
+    }
 }
@@ -0,0 +1,404 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import org.wiremock.extensions.state.internal.ContextCodec;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import static com.github.tomakehurst.wiremock.common.LocalNotifier.notifier;
+
+/**
+ * Write-ahead journal of context changes, allowing to recover all contexts after a crash or to replay them into a fresh instance.
+ * <p>
+ * Every change is journaled before it's applied to the store: updated contexts are written as a whole (including their update
+ * count), deleted contexts as tombstone. Writes of concurrent requests are committed as a group by a single writer thread, sharing
+ * one fsync. As every change writes the whole context, the cost of a change grows with the size of the context (e.g. its list).
+ * <p>
+ * On open, the journal is compacted to the latest version of each context. While running, it's compacted by the writer thread once
+ * it exceeds the minimum compaction size and more than half of it is outdated.
+ * <p>
+ * Register with {@link StateExtension.Options#journal(StateJournal)}, which replays the journal into the store.
+ */
+public class StateJournal implements AutoCloseable {
+
+    private static final int MAX_BATCH_SIZE = 1024;
+    private static final long DEFAULT_MIN_COMPACTION_SIZE = 16 * 1024 * 1024;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final Entry CLOSE = new Entry(null, new byte[0]);
+
+    private final Path file;
+    private final boolean sync;
+    private final long minCompactionSize;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Map<String, byte[]> recoveredContexts;
+    /**
+     * Size of the latest record of each context - only accessed by the writer thread after opening.
+     */
+    private final Map<String, Integer> liveRecordSizes = new HashMap<>();
+    private final Thread writer;
+    private FileChannel channel;
+    private long liveBytes;
+    private long totalBytes;
+    private boolean closed;
+
+    /**
+     * Opens a journal that commits every change to disk before it's applied.
+     *
+     * @param file The journal file. Created if it does not exist.
+     */
+    public StateJournal(Path file) {
+        this(file, true);
+    }
+
+    /**
+     * Opens a journal.
+     *
+     * @param file The journal file. Created if it does not exist.
+     * @param sync If true, changes are forced to disk (in groups) and only applied afterwards. If false, changes are written in the
+     *             background and flushing is left to the operating system - faster, but changes may be lost on a system crash.
+     */
+    public StateJournal(Path file, boolean sync) {
+        this(file, sync, DEFAULT_MIN_COMPACTION_SIZE);
+    }
+
+    /**
+     * Opens a journal.
+     *
+     * @param file              The journal file. Created if it does not exist.
+     * @param sync              If true, changes are forced to disk (in groups) and only applied afterwards. If false, changes are
+     *                          written in the background.
+     * @param minCompactionSize Size in bytes the journal must exceed before it's compacted while running.
+     */
+    public StateJournal(Path file, boolean sync, long minCompactionSize) {
+        this.file = file;
+        this.sync = sync;
+        this.minCompactionSize = minCompactionSize;
+        try {
+            this.recoveredContexts = recover();
+            compact(recoveredContexts);
+            this.channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        this.writer = new Thread(this::writeBatches, "state-extension-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Passes each context recovered from the journal to the consumer.
+     *
+     * @param consumer Consumer of the recovered contexts.
+     */
+    public void replay(Consumer<Context> consumer) {
+        recoveredContexts.values().forEach(it -> consumer.accept(ContextCodec.decode(it)));
+    }
+
+    /**
+     * Journals the new version of a context. Returns once the change is on disk (if syncing).
+     *
+     * @param context The new version of the context.
+     */
+    public void put(Context context) {
+        append(context.getContextName(), PUT, ContextCodec.encode(context));
+    }
+
+    /**
+     * Journals the deletion of a context. Returns once the change is on disk (if syncing).
+     *
+     * @param contextName Name of the deleted context.
+     */
+    public void delete(String contextName) {
+        append(contextName, DELETE, contextName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Journals the deletion of several contexts. All deletions are queued at once, so they're committed in as few groups as possible.
+     * Returns once all changes are on disk (if syncing).
+     *
+     * @param contextNames Names of the deleted contexts.
+     */
+    public void delete(Collection<String> contextNames) {
+        var entries = new ArrayList<Entry>(contextNames.size());
+        contextNames.forEach(it -> entries.add(new Entry(it, record(DELETE, it.getBytes(StandardCharsets.UTF_8)))));
+        enqueue(entries);
+        awaitWritten(entries);
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(CLOSE);
+        }
+        try {
+            writer.join();
+            channel.force(false);
+            channel.close();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        queue.forEach(it -> it.written.completeExceptionally(new IOException("journal is closed")));
+    }
+
+    private void append(String contextName, byte type, byte[] payload) {
+        var entries = List.of(new Entry(contextName, record(type, payload)));
+        enqueue(entries);
+        awaitWritten(entries);
+    }
+
+    private void enqueue(List<Entry> entries) {
+        // checked and queued at once, so that no entry is queued behind the close marker
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("journal is closed");
+            }
+            queue.addAll(entries);
+        }
+    }
+
+    private void awaitWritten(List<Entry> entries) {
+        if (!sync) {
+            return;
+        }
+        try {
+            entries.forEach(it -> it.written.join());
+        } catch (CompletionException ex) {
+            throw new UncheckedIOException("Cannot write state journal", (IOException) ex.getCause());
+        }
+    }
+
+    /**
+     * Writes all queued entries in batches, forcing each batch to disk at once.
+     */
+    private void writeBatches() {
+        var batch = new ArrayList<Entry>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException ex) {
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            var stop = batch.remove(CLOSE);
+            writeBatch(batch);
+            batch.forEach(this::track);
+            batch.clear();
+            if (!stop && totalBytes > minCompactionSize && liveBytes < totalBytes / 2) {
+                try {
+                    compactWhileRunning();
+                } catch (IOException ex) {
+                    failQueued(ex);
+                    return;
+                }
+            }
+            if (stop) {
+                return;
+            }
+        }
+    }
+
+    private void writeBatch(List<Entry> batch) {
+        try {
+            var buffers = batch.stream().map(it -> ByteBuffer.wrap(it.record)).toArray(ByteBuffer[]::new);
+            long remaining = batch.stream().mapToLong(it -> it.record.length).sum();
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+            if (sync) {
+                channel.force(false);
+            }
+            batch.forEach(it -> it.written.complete(null));
+        } catch (IOException ex) {
+            notifier().error("State journal: cannot write: " + ex.getMessage());
+            batch.forEach(it -> it.written.completeExceptionally(ex));
+        }
+    }
+
+    private void track(Entry entry) {
+        var recordSize = entry.record.length;
+        totalBytes += recordSize;
+        Integer previousSize;
+        // the type follows length and crc
+        if (entry.record[2 * Integer.BYTES] == PUT) {
+            previousSize = liveRecordSizes.put(entry.contextName, recordSize);
+            liveBytes += recordSize;
+        } else {
+            previousSize = liveRecordSizes.remove(entry.contextName);
+        }
+        if (previousSize != null) {
+            liveBytes -= previousSize;
+        }
+    }
+
+    /**
+     * Compacts the journal from the writer thread. Queued changes wait meanwhile, they're appended to the compacted journal.
+     *
+     * @throws IOException If the journal cannot be reopened afterwards.
+     */
+    private void compactWhileRunning() throws IOException {
+        try {
+            channel.force(false);
+            channel.close();
+            compact(recover());
+        } catch (IOException ex) {
+            notifier().error("State journal: cannot compact: " + ex.getMessage());
+        }
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Closes the journal after the writer failed: all queued changes fail, further changes are rejected.
+     */
+    private void failQueued(IOException ex) {
+        notifier().error("State journal: cannot reopen, closing the journal: " + ex.getMessage());
+        synchronized (this) {
+            closed = true;
+        }
+        queue.forEach(it -> it.written.completeExceptionally(ex));
+        queue.clear();
+    }
+
+    /**
+     * Reads the journal, keeping the latest version of each context. A torn or corrupt record at the end (e.g. after a crash) ends
+     * the journal.
+     */
+    private Map<String, byte[]> recover() throws IOException {
+        var contexts = new LinkedHashMap<String, byte[]>();
+        if (Files.notExists(file)) {
+            return contexts;
+        }
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            readRecords(input, (type, payload) -> {
+                if (type == PUT) {
+                    var context = ContextCodec.decode(payload);
+                    contexts.remove(context.getContextName());
+                    contexts.put(context.getContextName(), payload);
+                } else if (type == DELETE) {
+                    contexts.remove(new String(payload, StandardCharsets.UTF_8));
+                }
+            });
+        }
+        return contexts;
+    }
+
+    private void readRecords(DataInputStream input, BiConsumer<Byte, byte[]> consumer) throws IOException {
+        long position = 0;
+        try {
+            while (true) {
+                var length = input.readInt();
+                var crc = input.readInt();
+                if (length <= 0) {
+                    break;
+                }
+                var body = new byte[length];
+                input.readFully(body);
+                if (crc(body) != crc) {
+                    notifier().error(String.format("State journal: ignoring corrupt record in %s at %d", file, position));
+                    break;
+                }
+                consumer.accept(body[0], Arrays.copyOfRange(body, 1, body.length));
+                position += 2 * Integer.BYTES + length;
+            }
+        } catch (EOFException ex) {
+            // end of journal, possibly with a torn record
+        }
+    }
+
+    /**
+     * Rewrites the journal with the given latest version of each context only.
+     */
+    private void compact(Map<String, byte[]> contexts) throws IOException {
+        var compacted = file.resolveSibling(file.getFileName() + ".compacting");
+        liveRecordSizes.clear();
+        liveBytes = 0;
+        try (var output = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (var context : contexts.entrySet()) {
+                var buffer = ByteBuffer.wrap(record(PUT, context.getValue()));
+                liveRecordSizes.put(context.getKey(), buffer.remaining());
+                liveBytes += buffer.remaining();
+                while (buffer.hasRemaining()) {
+                    output.write(buffer);
+                }
+            }
+            output.force(true);
+        }
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        totalBytes = liveBytes;
+    }
+
+    /**
+     * Creates a record: {@code [length][crc][type][payload]}.
+     */
+    private static byte[] record(byte type, byte[] payload) {
+        var body = ByteBuffer.allocate(1 + payload.length).put(type).put(payload).array();
+        return ByteBuffer.allocate(2 * Integer.BYTES + body.length)
+            .putInt(body.length)
+            .putInt(crc(body))
+            .put(body)
+            .array();
+    }
+
+    private static int crc(byte[] body) {
+        var crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private static class Entry {
+        private final String contextName;
+        private final byte[] record;
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        Entry(String contextName, byte[] record) {
+            this.contextName = contextName;
+            this.record = record;
+        }
+    }
+}
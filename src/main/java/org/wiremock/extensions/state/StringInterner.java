@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded interner for property keys and values, to share equal strings between contexts instead of holding a copy per context.
+ * <p>
+ * Only short strings are interned. The interner is bounded by the number of strings and favors strings that are seen frequently,
+ * so recurring keys and low-cardinality values (e.g. status values) are shared, while unique values (e.g. IDs) quickly drop out.
+ * <p>
+ * Register with {@link StateExtension.Options#interner(StringInterner)}.
+ */
+public class StringInterner {
+
+    private static final long DEFAULT_MAXIMUM_SIZE = 100_000;
+    private static final int DEFAULT_MAXIMUM_LENGTH = 64;
+    private static final int STRING_OVERHEAD = 40;
+
+    private final Cache<String, String> cache;
+    private final int maximumLength;
+    private final LongAdder savedBytes = new LongAdder();
+    private final LongAdder savedCount = new LongAdder();
+
+    public StringInterner() {
+        this(DEFAULT_MAXIMUM_SIZE, DEFAULT_MAXIMUM_LENGTH);
+    }
+
+    /**
+     * @param maximumSize   Maximum number of interned strings.
+     * @param maximumLength Maximum length of strings to intern. Longer strings are returned as they are.
+     */
+    public StringInterner(long maximumSize, int maximumLength) {
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .build();
+        this.maximumLength = maximumLength;
+    }
+
+    /**
+     * Returns the shared instance of the given string.
+     *
+     * @param value String to intern. May be {@code null}.
+     * @return An equal string - the shared instance, if there is one.
+     */
+    public String intern(String value) {
+        if (value == null || value.length() > maximumLength) {
+            return value;
+        }
+        var shared = cache.get(value, it -> it);
+        if (shared != value) {
+            savedCount.increment();
+            savedBytes.add(STRING_OVERHEAD + value.length());
+        }
+        return shared;
+    }
+
+    /**
+     * @return Number of strings replaced by a shared instance.
+     */
+    public long getSavedCount() {
+        return savedCount.sum();
+    }
+
+    /**
+     * @return Estimated bytes saved by replacing strings with a shared instance. Assumes compact (latin-1) strings.
+     */
+    public long getSavedBytes() {
+        return savedBytes.sum();
+    }
+
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+}
@@ -20,13 +20,15 @@ import com.github.tomakehurst.wiremock.core.ConfigurationException;
 import com.github.tomakehurst.wiremock.extension.Parameters;
 import com.github.tomakehurst.wiremock.extension.ServeEventListener;
 import com.github.tomakehurst.wiremock.extension.responsetemplating.RequestTemplateModel;
-import com.github.tomakehurst.wiremock.extension.responsetemplating.TemplateEngine;
 import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
 import org.apache.commons.lang3.StringUtils;
 import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.ParametersCache;
 import org.wiremock.extensions.state.internal.StateExtensionMixin;
+import org.wiremock.extensions.state.internal.TemplateCache;
 import org.wiremock.extensions.state.internal.api.DeleteStateParameters;
 import org.wiremock.extensions.state.internal.model.ResponseTemplateModel;
+import org.wiremock.extensions.state.internal.model.TemplateModel;
 
 import java.util.List;
 import java.util.Map;
@@ -47,13 +49,14 @@ import static org.wiremock.extensions.state.internal.ExtensionLogger.logger;
  */
 public class DeleteStateEventListener implements ServeEventListener, StateExtensionMixin {
 
-    private final TemplateEngine templateEngine;
+    private final TemplateCache templateCache;
     private final ContextManager contextManager;
+    private final ParametersCache<DeleteStateParameters> parametersCache = new ParametersCache<>(it -> Json.mapToObject(it, DeleteStateParameters.class));
 
 
-    public DeleteStateEventListener(ContextManager contextManager, TemplateEngine templateEngine) {
+    public DeleteStateEventListener(ContextManager contextManager, TemplateCache templateCache) {
         this.contextManager = contextManager;
-        this.templateEngine = templateEngine;
+        this.templateCache = templateCache;
     }
 
     @Override
@@ -67,16 +70,15 @@ public class DeleteStateEventListener implements ServeEventListener, StateExtens
     }
 
     public void beforeResponseSent(ServeEvent serveEvent, Parameters parameters) {
-        var model = Map.of(
-            "request", RequestTemplateModel.from(serveEvent.getRequest()),
-            "response", ResponseTemplateModel.from(serveEvent.getResponse())
-        );
-        var configuration = Json.mapToObject(parameters, DeleteStateParameters.class);
+        var model = new TemplateModel()
+            .with("request", () -> RequestTemplateModel.from(serveEvent.getRequest()))
+            .with("response", () -> ResponseTemplateModel.from(serveEvent.getResponse()));
+        var configuration = parametersCache.get(parameters);
         new ListenerInstance(serveEvent.getId().toString(), model, configuration).run();
     }
 
     private String renderTemplate(Object context, String value) {
-        return templateEngine.getUncachedTemplate(value).apply(context);
+        return templateCache.render(context, value);
     }
 
     private class ListenerInstance {
@@ -92,7 +94,10 @@ public class DeleteStateEventListener implements ServeEventListener, StateExtens
 
         public void run() {
             Optional.ofNullable(configuration.getList()).ifPresentOrElse(
-                listConfig -> handleListDeletion(listConfig, createContextName(configuration.getContext())),
+                listConfig -> {
+                    var contextName = createContextName(configuration.getContext());
+                    contextManager.submitChange(requestId, contextName, () -> handleListDeletion(listConfig, contextName));
+                },
                 this::handleContextDeletion
             );
         }
@@ -110,31 +115,23 @@ public class DeleteStateEventListener implements ServeEventListener, StateExtens
         }
 
         private void deleteContexts(List<String> rawContexts) {
-
             var contexts = rawContexts.stream().map(it -> renderTemplate(model, it)).collect(Collectors.toList());
-            contextManager.onEach(requestId, context -> {
-                if (contexts.contains(context.getContextName())) {
-                    contextManager.deleteContext(requestId, context.getContextName());
-                }
-            });
+            contextManager.deleteContexts(contexts);
         }
 
         private void deleteContextsMatching(String rawRegex) {
             try {
                 var regex = renderTemplate(model, rawRegex);
                 var pattern = Pattern.compile(regex);
-                contextManager.onEach(requestId, context -> {
-                    if (pattern.matcher(context.getContextName()).matches()) {
-                        contextManager.deleteContext(requestId, context.getContextName());
-                    }
-                });
+                contextManager.deleteContextsMatching(contextName -> pattern.matcher(contextName).matches());
             } catch (PatternSyntaxException ex) {
                 throw createConfigurationError("Missing/invalid configuration for context deletion: %s", ex.getMessage());
             }
         }
 
         private void deleteContext(String rawContext) {
-            contextManager.deleteContext(requestId, createContextName(rawContext));
+            var contextName = createContextName(rawContext);
+            contextManager.submitChange(requestId, contextName, () -> contextManager.deleteContext(requestId, contextName));
         }
 
         private void handleListDeletion(DeleteStateParameters.ListParameters listConfig, String contextName) {
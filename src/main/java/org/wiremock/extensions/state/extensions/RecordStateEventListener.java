@@ -20,13 +20,18 @@ import com.github.tomakehurst.wiremock.core.ConfigurationException;
 import com.github.tomakehurst.wiremock.extension.Parameters;
 import com.github.tomakehurst.wiremock.extension.ServeEventListener;
 import com.github.tomakehurst.wiremock.extension.responsetemplating.RequestTemplateModel;
-import com.github.tomakehurst.wiremock.extension.responsetemplating.TemplateEngine;
 import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
 import org.apache.commons.lang3.StringUtils;
 import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.JsonExtractor;
+import org.wiremock.extensions.state.internal.ParametersCache;
 import org.wiremock.extensions.state.internal.StateExtensionMixin;
+import org.wiremock.extensions.state.internal.TemplateCache;
 import org.wiremock.extensions.state.internal.api.RecordStateParameters;
+import org.wiremock.extensions.state.internal.model.CompactMap;
+import org.wiremock.extensions.state.internal.model.ContextUpdate;
 import org.wiremock.extensions.state.internal.model.ResponseTemplateModel;
+import org.wiremock.extensions.state.internal.model.TemplateModel;
 
 import java.util.Map;
 import java.util.Optional;
@@ -43,21 +48,28 @@ import static org.wiremock.extensions.state.internal.ExtensionLogger.logger;
  */
 public class RecordStateEventListener implements ServeEventListener, StateExtensionMixin {
 
-    private final TemplateEngine templateEngine;
+    private final TemplateCache templateCache;
     private final ContextManager contextManager;
+    private final ParametersCache<RecordStateParameters> parametersCache = new ParametersCache<>(it -> Json.mapToObject(it, RecordStateParameters.class));
+    private final ParametersCache<JsonExtractor> extractorCache = new ParametersCache<>(it -> JsonExtractor.compile(parametersCache.get(it).getExtract()));
 
-    public RecordStateEventListener(ContextManager contextManager, TemplateEngine templateEngine) {
+    public RecordStateEventListener(ContextManager contextManager, TemplateCache templateCache) {
         this.contextManager = contextManager;
-        this.templateEngine = templateEngine;
+        this.templateCache = templateCache;
     }
 
     public void beforeResponseSent(ServeEvent serveEvent, Parameters parameters) {
-        var model = Map.of(
-            "request", RequestTemplateModel.from(serveEvent.getRequest()),
-            "response", ResponseTemplateModel.from(serveEvent.getResponse())
-        );
-        var configuration = Json.mapToObject(parameters, RecordStateParameters.class);
-        new ListenerInstance(serveEvent.getId().toString(), model, configuration).run();
+        var model = new TemplateModel()
+            .with("request", () -> RequestTemplateModel.from(serveEvent.getRequest()))
+            .with("response", () -> ResponseTemplateModel.from(serveEvent.getResponse()));
+        var configuration = parametersCache.get(parameters);
+        var extractor = extractorCache.get(parameters);
+        if (!extractor.isEmpty()) {
+            model.with("extracted", () -> extractor.extract(serveEvent.getResponse().getBody()));
+        }
+        var requestId = serveEvent.getId().toString();
+        var instance = new ListenerInstance(requestId, model, configuration);
+        contextManager.submitChange(requestId, instance.contextName, instance::run);
     }
 
     @Override
@@ -65,6 +77,11 @@ public class RecordStateEventListener implements ServeEventListener, StateExtens
         return "recordState";
     }
 
+    @Override
+    public void stop() {
+        contextManager.stopAsyncRecording();
+    }
+
     @Override
     public boolean applyGlobally() {
         return false;
@@ -72,7 +89,7 @@ public class RecordStateEventListener implements ServeEventListener, StateExtens
 
 
     private String renderTemplate(Object context, String value) {
-        return templateEngine.getUncachedTemplate(value).apply(context);
+        return templateCache.render(context, value);
     }
 
     private class ListenerInstance {
@@ -89,8 +106,11 @@ public class RecordStateEventListener implements ServeEventListener, StateExtens
         }
 
         void run() {
-            handleState();
-            handleList();
+            var update = new ContextUpdate();
+            handleState(update);
+            handleList(update);
+            handleExpiration(update);
+            contextManager.updateContext(requestId, contextName, update);
         }
 
         private String createContextName() {
@@ -104,11 +124,9 @@ public class RecordStateEventListener implements ServeEventListener, StateExtens
             return context;
         }
 
-        private void handleState() {
+        private void handleState(ContextUpdate update) {
             Optional.ofNullable(parameters.getState())
-                .ifPresent(configuration ->
-                    contextManager.createOrUpdateContextState(requestId, contextName, getPropertiesFromConfiguration(configuration))
-                );
+                .ifPresent(configuration -> update.withProperties(getPropertiesFromConfiguration(configuration)));
         }
 
         private Map<String, String> getPropertiesFromConfiguration(Map<String, String> configuration) {
@@ -118,27 +136,42 @@ public class RecordStateEventListener implements ServeEventListener, StateExtens
                 .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
         }
 
-        private void handleList() {
+        private void handleExpiration(ContextUpdate update) {
+            Optional.ofNullable(parameters.getExpiration())
+                .filter(StringUtils::isNotBlank)
+                .ifPresent(rawExpiration -> {
+                    var expiration = renderTemplate(model, rawExpiration);
+                    try {
+                        update.withExpirationSeconds(Long.parseLong(expiration.trim()));
+                    } catch (NumberFormatException e) {
+                        logger().error(contextName, String.format("Unparsable expiration: '%s' - ignoring", expiration));
+                    }
+                });
+        }
+
+        private void handleList(ContextUpdate update) {
             Optional.ofNullable(parameters.getList())
                 .ifPresent(listConfiguration -> {
                         Optional.ofNullable(listConfiguration.getAddFirst())
-                            .ifPresent(this::addFirst);
+                            .ifPresent(configuration -> addFirst(update, configuration));
                         Optional.ofNullable(listConfiguration.getAddLast())
-                            .ifPresent(this::addLast);
+                            .ifPresent(configuration -> addLast(update, configuration));
                     }
                 );
         }
 
-        private void addFirst(Map<String, String> configuration) {
-            contextManager.createOrUpdateContextList(requestId, contextName, list -> {
-                list.addFirst(getPropertiesFromConfiguration(configuration));
+        private void addFirst(ContextUpdate update, Map<String, String> configuration) {
+            var entry = CompactMap.of(contextManager.internProperties(getPropertiesFromConfiguration(configuration)));
+            update.withListChange(list -> {
+                list.addFirst(entry);
                 logger().info(contextName, "list::addFirst");
             });
         }
 
-        private void addLast(Map<String, String> configuration) {
-            contextManager.createOrUpdateContextList(requestId, contextName, list -> {
-                list.addLast(getPropertiesFromConfiguration(configuration));
+        private void addLast(ContextUpdate update, Map<String, String> configuration) {
+            var entry = CompactMap.of(contextManager.internProperties(getPropertiesFromConfiguration(configuration)));
+            update.withListChange(list -> {
+                list.addLast(entry);
                 logger().info(contextName, "list::addLast");
             });
         }
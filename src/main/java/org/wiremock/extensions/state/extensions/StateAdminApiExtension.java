@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.extensions;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.tomakehurst.wiremock.admin.Router;
+import com.github.tomakehurst.wiremock.common.Json;
+import com.github.tomakehurst.wiremock.extension.AdminApiExtension;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.TransactionManager;
+import org.wiremock.extensions.state.internal.model.CompactMap;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder.responseDefinition;
+import static com.github.tomakehurst.wiremock.http.RequestMethod.GET;
+import static com.github.tomakehurst.wiremock.http.RequestMethod.POST;
+
+/**
+ * Admin API to export and import all contexts.
+ * <p>
+ * Snapshots are NDJSON: one JSON object per context, holding name, properties, list, update count and expiration. Taking a snapshot
+ * does not block request handling - every context is exported in a consistent state, but changes happening while the snapshot is
+ * taken may or may not be contained. As admin responses cannot be streamed, the snapshot is built in memory before it's sent.
+ * <p>
+ * Restoring replaces the contexts contained in the snapshot and leaves all others untouched. The whole snapshot is validated before
+ * any context is replaced, so an invalid snapshot changes nothing.
+ * <p>
+ * DO NOT REGISTER directly. Use {@link org.wiremock.extensions.state.StateExtension} instead.
+ *
+ * @see org.wiremock.extensions.state.StateExtension
+ */
+public class StateAdminApiExtension implements AdminApiExtension {
+
+    private static final String CONTENT_TYPE = "application/x-ndjson";
+
+    private final ContextManager contextManager;
+    private final TransactionManager transactionManager;
+
+    public StateAdminApiExtension(ContextManager contextManager, TransactionManager transactionManager) {
+        this.contextManager = contextManager;
+        this.transactionManager = transactionManager;
+    }
+
+    @Override
+    public String getName() {
+        return "stateAdmin";
+    }
+
+    @Override
+    public void contributeAdminApiRoutes(Router router) {
+        router.add(GET, "/state/snapshot", (admin, serveEvent, pathParams) -> snapshot());
+        router.add(POST, "/state/snapshot", (admin, serveEvent, pathParams) -> restore(serveEvent));
+    }
+
+    private ResponseDefinition snapshot() {
+        var mapper = Json.getObjectMapper();
+        var output = new ByteArrayOutputStream();
+        try (var generator = mapper.getFactory().createGenerator(output)) {
+            generator.setRootValueSeparator(null);
+            contextManager.getContextNames().forEach(contextName ->
+                contextManager.getContext(contextName).ifPresent(context -> writeContext(generator, context))
+            );
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return responseDefinition()
+            .withStatus(200)
+            .withHeader("Content-Type", CONTENT_TYPE)
+            .withBody(output.toByteArray())
+            .build();
+    }
+
+    private ResponseDefinition restore(ServeEvent serveEvent) {
+        var contexts = new ArrayList<Context>();
+        try (var nodes = Json.getObjectMapper().readerFor(JsonNode.class).<JsonNode>readValues(serveEvent.getRequest().getBody())) {
+            while (nodes.hasNext()) {
+                contexts.add(readContext(nodes.next()));
+            }
+        } catch (IOException | RuntimeException ex) {
+            return responseDefinition()
+                .withStatus(400)
+                .withBody(String.format("Invalid snapshot after %d contexts: %s", contexts.size(), ex.getMessage()))
+                .build();
+        }
+        var requestId = serveEvent.getId().toString();
+        try {
+            contexts.forEach(context -> contextManager.restoreContext(requestId, context));
+        } finally {
+            transactionManager.deleteTransactions(requestId);
+        }
+        return responseDefinition()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/json")
+            .withBody(Json.write(Map.of("restored", contexts.size())))
+            .build();
+    }
+
+    private static void writeContext(JsonGenerator generator, Context context) {
+        try {
+            generator.writeStartObject();
+            generator.writeStringField("contextName", context.getContextName());
+            generator.writeNumberField("updateCount", context.getUpdateCount());
+            if (context.getExpirationSeconds() != null) {
+                generator.writeNumberField("expirationSeconds", context.getExpirationSeconds());
+            }
+            generator.writeObjectField("properties", context.getProperties());
+            generator.writeObjectField("list", context.getList());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static Context readContext(JsonNode node) {
+        var contextName = node.path("contextName").asText(null);
+        if (contextName == null || contextName.isBlank()) {
+            throw new IllegalArgumentException("missing contextName");
+        }
+        var context = new Context(contextName);
+        context.setUpdateCount(node.path("updateCount").asLong(0));
+        if (node.hasNonNull("expirationSeconds")) {
+            context.setExpirationSeconds(node.get("expirationSeconds").asLong());
+        }
+        node.path("properties").fields().forEachRemaining(it -> context.getProperties().put(it.getKey(), it.getValue().asText()));
+        node.path("list").forEach(entry -> {
+            var properties = new HashMap<String, String>();
+            entry.fields().forEachRemaining(it -> properties.put(it.getKey(), it.getValue().asText()));
+            context.getList().add(CompactMap.of(properties));
+        });
+        return context;
+    }
+}
@@ -81,7 +81,7 @@ public class StateHandlerbarHelper extends HandlebarsHelper<Object> {
     }
 
     private Optional<Object> getProperty(String contextName, String property, String defaultValue) {
-        return contextManager.getContextCopy(contextName)
+        return contextManager.getContext(contextName)
             .map(context ->
                 Stream.of(SpecialProperties.values())
                     .filter(it -> it.name().equals(property))
@@ -108,7 +108,7 @@ public class StateHandlerbarHelper extends HandlebarsHelper<Object> {
     }
 
     private Optional<Object> getList(String contextName, String list) {
-        return contextManager.getContextCopy(contextName)
+        return contextManager.getContext(contextName)
             .flatMap(context -> {
                 try {
                     return Optional.of(JsonPath.read(context.getList(), list));
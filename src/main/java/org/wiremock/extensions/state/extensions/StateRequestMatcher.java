@@ -19,23 +19,28 @@ import com.github.tomakehurst.wiremock.common.Json;
 import com.github.tomakehurst.wiremock.core.ConfigurationException;
 import com.github.tomakehurst.wiremock.extension.Parameters;
 import com.github.tomakehurst.wiremock.extension.responsetemplating.RequestTemplateModel;
-import com.github.tomakehurst.wiremock.extension.responsetemplating.TemplateEngine;
 import com.github.tomakehurst.wiremock.http.Request;
 import com.github.tomakehurst.wiremock.matching.MatchResult;
 import com.github.tomakehurst.wiremock.matching.RequestMatcherExtension;
 import com.github.tomakehurst.wiremock.matching.StringValuePattern;
 import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.ParametersCache;
 import org.wiremock.extensions.state.internal.StateExtensionMixin;
+import org.wiremock.extensions.state.internal.TemplateCache;
 import org.wiremock.extensions.state.internal.model.Context;
 import org.wiremock.extensions.state.internal.model.ContextTemplateModel;
+import org.wiremock.extensions.state.internal.model.TemplateModel;
 
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
 import java.util.stream.Collectors;
 
 import static com.github.tomakehurst.wiremock.common.LocalNotifier.notifier;
@@ -50,21 +55,13 @@ import static org.wiremock.extensions.state.internal.ExtensionLogger.logger;
  */
 public class StateRequestMatcher extends RequestMatcherExtension implements StateExtensionMixin {
 
-    private final TemplateEngine templateEngine;
+    private final TemplateCache templateCache;
     private final ContextManager contextManager;
+    private final ParametersCache<MatcherPlan> matcherPlans = new ParametersCache<>(MatcherPlan::new);
 
-    public StateRequestMatcher(ContextManager contextManager, TemplateEngine templateEngine) {
+    public StateRequestMatcher(ContextManager contextManager, TemplateCache templateCache) {
         this.contextManager = contextManager;
-        this.templateEngine = templateEngine;
-    }
-
-    private static List<Map.Entry<ContextMatcher, Object>> getMatchers(Parameters parameters) {
-        return parameters
-            .entrySet()
-            .stream()
-            .filter(it -> ContextMatcher.from(it.getKey()) != null)
-            .map(it -> Map.entry(ContextMatcher.from(it.getKey()), it.getValue()))
-            .collect(Collectors.toUnmodifiableList());
+        this.templateCache = templateCache;
     }
 
     private static <T> T mapToObject(Map<String, Object> map, Class<T> klass) {
@@ -97,32 +94,35 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
 
     @Override
     public MatchResult match(Request request, Parameters parameters) {
-        Map<String, Object> model = new HashMap<>(Map.of("request", RequestTemplateModel.from(request)));
+        var plan = matcherPlans.get(parameters);
+        Map<String, Object> model = new TemplateModel().with("request", () -> RequestTemplateModel.from(request));
         return Optional
-            .ofNullable(parameters.getString("hasContext", null))
-            .map(template -> hasContext(model, parameters, template))
-            .or(() -> Optional.ofNullable(parameters.getString("hasNotContext", null)).map(template -> hasNotContext(model, template)))
+            .ofNullable(plan.hasContext)
+            .map(template -> hasContext(model, plan, template))
+            .or(() -> Optional.ofNullable(plan.hasNotContext).map(template -> hasNotContext(model, template)))
             .orElseThrow(() -> createConfigurationError("Parameters should only contain 'hasContext' or 'hasNotContext'"));
     }
 
-    private MatchResult hasContext(Map<String, Object> model, Parameters parameters, String template) {
-        return contextManager.getContextCopy(renderTemplate(model, template))
-            .map(context -> {
-                List<Map.Entry<ContextMatcher, Object>> matchers = getMatchers(parameters);
-                if (matchers.isEmpty()) {
-                    logger().info(context, "hasContext matched");
-                    return MatchResult.exactMatch();
-                } else {
-                    return calculateMatch(model, context, matchers);
-                }
-            }).orElseGet(MatchResult::noMatch);
+    private MatchResult hasContext(Map<String, Object> model, MatcherPlan plan, String template) {
+        var contextName = renderTemplate(model, template);
+        if (plan.matchers.isEmpty()) {
+            if (contextManager.exists(contextName)) {
+                logger().info(contextName, "hasContext matched");
+                return MatchResult.exactMatch();
+            } else {
+                return MatchResult.noMatch();
+            }
+        }
+        return contextManager.getContext(contextName)
+            .map(context -> calculateMatch(model, context, plan.matchers))
+            .orElseGet(MatchResult::noMatch);
     }
 
-    private MatchResult calculateMatch(Map<String, Object> model, Context context, List<Map.Entry<ContextMatcher, Object>> matchers) {
+    private MatchResult calculateMatch(Map<String, Object> model, Context context, List<CompiledMatcher> matchers) {
         model.put("context", ContextTemplateModel.from(context));
         var results = matchers
             .stream()
-            .map(it -> it.getKey().evaluate(context, renderTemplateRecursively(model, it.getValue())))
+            .map(it -> it.evaluate(context, value -> renderTemplateRecursively(model, value)))
             .collect(Collectors.toList());
 
         return MatchResult.aggregate(results);
@@ -130,7 +130,7 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
 
     private MatchResult hasNotContext(Map<String, Object> model, String template) {
         var context = renderTemplate(model, template);
-        if (contextManager.getContextCopy(context).isEmpty()) {
+        if (!contextManager.exists(context)) {
             logger().info(context, "hasNotContext matched");
             return MatchResult.exactMatch();
         } else {
@@ -138,8 +138,52 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
         }
     }
 
+    private static boolean containsTemplate(Object value) {
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).stream().anyMatch(StateRequestMatcher::containsTemplate);
+        } else if (value instanceof Map) {
+            return ((Map<?, ?>) value).entrySet().stream()
+                .anyMatch(it -> containsTemplate(it.getKey()) || containsTemplate(it.getValue()));
+        } else {
+            return value != null && value.toString().contains("{{");
+        }
+    }
+
+    /**
+     * Mirrors the structure produced by {@link #renderTemplateRecursively(Object, Object)} for values without templates.
+     */
+    private static Object normalize(Object value) {
+        if (value instanceof Collection) {
+            Collection<Object> castedCollection = cast(value, Collection.class);
+            return castedCollection.stream().map(StateRequestMatcher::normalize).collect(Collectors.toList());
+        } else if (value instanceof Map) {
+            var newMap = new HashMap<String, Object>();
+            Map<String, Object> castedMap = cast(value, Map.class);
+            castedMap.forEach((k, v) -> newMap.put(k, normalize(v)));
+            return newMap;
+        } else {
+            return value == null ? null : value.toString();
+        }
+    }
+
+    private static StringValuePattern toPattern(Object value) {
+        if (value instanceof StringValuePattern) {
+            return (StringValuePattern) value;
+        } else {
+            Map<String, Object> mapValue = cast(value, Map.class);
+            return mapToObject(mapValue, StringValuePattern.class);
+        }
+    }
+
+    private static Map<String, Object> toPatterns(Object value) {
+        Map<String, Object> mapValue = cast(value, Map.class);
+        var patterns = new LinkedHashMap<String, Object>();
+        mapValue.forEach((k, v) -> patterns.put(k, toPattern(v)));
+        return patterns;
+    }
+
     String renderTemplate(Object context, String value) {
-        return templateEngine.getUncachedTemplate(value).apply(context);
+        return templateCache.render(context, value);
     }
 
     Object renderTemplateRecursively(Object context, Object value) {
@@ -161,10 +205,10 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
 
     private enum ContextMatcher {
 
-        property((Context c, Object object) -> {
-            Map<String, Map<String, Object>> mapValue = cast(object, Map.class);
+        property(StateRequestMatcher::toPatterns, (Context c, Object object) -> {
+            Map<String, Object> mapValue = cast(object, Map.class);
             var results = mapValue.entrySet().stream().map(entry -> {
-                var patterns = mapToObject(entry.getValue(), StringValuePattern.class);
+                var patterns = toPattern(entry.getValue());
                 var propertyValue = c.getProperties().get(entry.getKey());
                 return patterns.match(propertyValue);
             }).collect(Collectors.toList());
@@ -176,8 +220,13 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
             }
         }),
 
-        list((Context c, Object object) -> {
-            Map<String, Map<String, Map<String, Object>>> mapValue = cast(object, Map.class);
+        list((Object object) -> {
+            Map<String, Object> mapValue = cast(object, Map.class);
+            var compiled = new LinkedHashMap<String, Object>();
+            mapValue.forEach((k, v) -> compiled.put(k, toPatterns(v)));
+            return compiled;
+        }, (Context c, Object object) -> {
+            Map<String, Map<String, Object>> mapValue = cast(object, Map.class);
             var allResults = mapValue.entrySet().stream().map(listIndexEntry -> {
                 Map<String, String> listEntry;
                 switch (listIndexEntry.getKey()) {
@@ -194,8 +243,9 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
                 if (listEntry == null) {
                     return MatchResult.noMatch();
                 } else {
-                    List<MatchResult> results = listIndexEntry.getValue().entrySet().stream().map(entry -> {
-                        var patterns = mapToObject(entry.getValue(), StringValuePattern.class);
+                    Map<String, Object> listEntryMatchers = cast(listIndexEntry.getValue(), Map.class);
+                    List<MatchResult> results = listEntryMatchers.entrySet().stream().map(entry -> {
+                        var patterns = toPattern(entry.getValue());
                         var propertyValue = listEntry.get(entry.getKey());
                         return patterns.match(propertyValue);
                     }).collect(Collectors.toList());
@@ -217,34 +267,37 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
             String stringValue = cast(object, String.class);
             return toMatchResult(!c.getProperties().containsKey(stringValue));
         }),
-        updateCountEqualTo((Context c, Object object) -> {
-            String stringValue = cast(object, String.class);
-            return toMatchResult(withConvertedNumber(c, stringValue, (context, value) -> context.getUpdateCount().equals(value)));
-        }),
-        updateCountLessThan((Context c, Object object) -> {
-            String stringValue = cast(object, String.class);
-            return toMatchResult(withConvertedNumber(c, stringValue, (context, value) -> context.getUpdateCount() < value));
-        }),
-        updateCountMoreThan((Context c, Object object) -> {
-            String stringValue = cast(object, String.class);
-            return toMatchResult(withConvertedNumber(c, stringValue, (context, value) -> context.getUpdateCount() > value));
-        }),
-        listSizeEqualTo((Context c, Object object) -> {
-            String stringValue = cast(object, String.class);
-            return toMatchResult(withConvertedNumber(c, stringValue, (context, value) -> context.getList().size() == value));
-        }),
-        listSizeLessThan((Context c, Object object) -> {
-            String stringValue = cast(object, String.class);
-            return toMatchResult(withConvertedNumber(c, stringValue, (context, value) -> context.getList().size() < value));
-        }),
-        listSizeMoreThan((Context c, Object object) -> {
-            String stringValue = cast(object, String.class);
-            return toMatchResult(withConvertedNumber(c, stringValue, (context, value) -> context.getList().size() > value));
-        });
+        updateCountEqualTo(ContextMatcher::compileNumber, (Context c, Object object) ->
+            toMatchResult(withNumber(object, value -> c.getUpdateCount() == value))
+        ),
+        updateCountLessThan(ContextMatcher::compileNumber, (Context c, Object object) ->
+            toMatchResult(withNumber(object, value -> c.getUpdateCount() < value))
+        ),
+        updateCountMoreThan(ContextMatcher::compileNumber, (Context c, Object object) ->
+            toMatchResult(withNumber(object, value -> c.getUpdateCount() > value))
+        ),
+        listSizeEqualTo(ContextMatcher::compileNumber, (Context c, Object object) ->
+            toMatchResult(withNumber(object, value -> c.getList().size() == value))
+        ),
+        listSizeLessThan(ContextMatcher::compileNumber, (Context c, Object object) ->
+            toMatchResult(withNumber(object, value -> c.getList().size() < value))
+        ),
+        listSizeMoreThan(ContextMatcher::compileNumber, (Context c, Object object) ->
+            toMatchResult(withNumber(object, value -> c.getList().size() > value))
+        );
 
+        private static final Map<String, ContextMatcher> BY_NAME = Arrays.stream(values())
+            .collect(Collectors.toUnmodifiableMap(Enum::name, Function.identity()));
+
+        private final Function<Object, Object> compiler;
         private final BiFunction<Context, Object, MatchResult> evaluator;
 
         ContextMatcher(BiFunction<Context, Object, MatchResult> evaluator) {
+            this(Function.identity(), evaluator);
+        }
+
+        ContextMatcher(Function<Object, Object> compiler, BiFunction<Context, Object, MatchResult> evaluator) {
+            this.compiler = compiler;
             this.evaluator = evaluator;
         }
 
@@ -253,13 +306,26 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
         }
 
         public static ContextMatcher from(String from) {
-            return Arrays.stream(values()).filter(it -> it.name().equals(from)).findFirst().orElse(null);
+            return BY_NAME.get(from);
         }
 
-        private static boolean withConvertedNumber(Context context, String stringValue, BiFunction<Context, Long, Boolean> evaluator) {
+        /**
+         * Parses numeric configuration values once. Unparsable values are kept and never match.
+         */
+        private static Object compileNumber(Object value) {
             try {
-                var longValue = Long.valueOf(stringValue);
-                return evaluator.apply(context, longValue);
+                return Long.parseLong(cast(value, String.class));
+            } catch (NumberFormatException ex) {
+                return value;
+            }
+        }
+
+        private static boolean withNumber(Object value, LongPredicate predicate) {
+            if (value instanceof Long) {
+                return predicate.test((Long) value);
+            }
+            try {
+                return predicate.test(Long.parseLong(cast(value, String.class)));
             } catch (NumberFormatException ex) {
                 return false;
             }
@@ -274,8 +340,64 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
             }
         }
 
+        /**
+         * Converts a non-templated configuration value into the form used for evaluation, e.g. pre-builds pattern matchers.
+         */
+        public Object compile(Object value) {
+            return this.compiler.apply(value);
+        }
+
         public MatchResult evaluate(Context context, Object value) {
             return this.evaluator.apply(context, value);
         }
     }
+
+    /**
+     * A single matcher of a stub: the resolved {@link ContextMatcher} and its configuration value. Values without templates are
+     * compiled once, templated values are rendered on each evaluation.
+     */
+    private static class CompiledMatcher {
+        private final ContextMatcher matcher;
+        private final Object value;
+        private final boolean templated;
+
+        CompiledMatcher(ContextMatcher matcher, Object rawValue) {
+            this.matcher = matcher;
+            this.templated = containsTemplate(rawValue);
+            this.value = templated ? rawValue : compileOrKeep(matcher, normalize(rawValue));
+        }
+
+        private static Object compileOrKeep(ContextMatcher matcher, Object value) {
+            try {
+                return matcher.compile(value);
+            } catch (ConfigurationException ex) {
+                // keep the value so that the configuration error is reported when the matcher is actually evaluated
+                return value;
+            }
+        }
+
+        MatchResult evaluate(Context context, Function<Object, Object> renderer) {
+            return matcher.evaluate(context, templated ? renderer.apply(value) : value);
+        }
+    }
+
+    /**
+     * Configuration of a stub's state matcher, derived once per {@link Parameters} instance.
+     */
+    private static class MatcherPlan {
+        private final String hasContext;
+        private final String hasNotContext;
+        private final List<CompiledMatcher> matchers;
+
+        MatcherPlan(Parameters parameters) {
+            this.hasContext = parameters.getString("hasContext", null);
+            this.hasNotContext = parameters.getString("hasNotContext", null);
+            this.matchers = parameters
+                .entrySet()
+                .stream()
+                .filter(it -> ContextMatcher.from(it.getKey()) != null)
+                .map(it -> new CompiledMatcher(ContextMatcher.from(it.getKey()), it.getValue()))
+                .collect(Collectors.toUnmodifiableList());
+        }
+    }
 }
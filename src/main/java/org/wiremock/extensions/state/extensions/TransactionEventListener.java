@@ -23,7 +23,7 @@ import org.wiremock.extensions.state.internal.StateExtensionMixin;
 import org.wiremock.extensions.state.internal.TransactionManager;
 
 /**
- * Persist transaction-related information in the context.
+ * Removes transaction-related information once a request completed.
  * <p>
  * DO NOT REGISTER directly. Use {@link org.wiremock.extensions.state.StateExtension} instead.
  *
@@ -51,8 +51,6 @@ public class TransactionEventListener implements ServeEventListener, StateExtens
     @Override
     public void afterComplete(ServeEvent serveEvent, Parameters parameters) {
 
-        String requestId = serveEvent.getId().toString();
-        var contextNames = transactionManager.getContextNamesByRequestId(requestId);
-        contextNames.forEach((contextName) -> transactionManager.deleteTransaction(requestId, contextName));
+        transactionManager.deleteTransactions(serveEvent.getId().toString());
     }
 }
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.github.tomakehurst.wiremock.common.LocalNotifier.notifier;
+
+/**
+ * Applies context changes in the background, off the response path.
+ * <p>
+ * Changes are queued to a fixed number of worker threads, striped by context name: all changes of a context are applied by the same
+ * worker, in the order they were submitted. Queues are bounded - when a queue is full, submitting blocks until there's room again.
+ * <p>
+ * Reads can wait for pending changes of a context with {@link #await(String)}, so a request sees the changes of all requests that
+ * were submitted before.
+ * <p>
+ * Workers run until {@link #close()} is called.
+ */
+public class AsyncRecorder implements AutoCloseable {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+
+    private final Stripe[] stripes;
+
+    public AsyncRecorder() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param stripeCount   Number of worker threads.
+     * @param queueCapacity Maximum number of pending changes per worker.
+     */
+    public AsyncRecorder(int stripeCount, int queueCapacity) {
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(i, queueCapacity);
+        }
+    }
+
+    /**
+     * Queues a change of the given context.
+     *
+     * @param contextName Name of the context to change.
+     * @param change      The change.
+     */
+    public void submit(String contextName, Runnable change) {
+        stripeFor(contextName).submit(change);
+    }
+
+    /**
+     * Waits until all changes of the given context submitted so far are applied. Returns immediately when called by a worker.
+     *
+     * @param contextName Name of the context.
+     */
+    public void await(String contextName) {
+        if (!isWorker()) {
+            stripeFor(contextName).await();
+        }
+    }
+
+    /**
+     * Waits until all changes submitted so far are applied. Returns immediately when called by a worker.
+     */
+    public void awaitAll() {
+        if (!isWorker()) {
+            for (var stripe : stripes) {
+                stripe.await();
+            }
+        }
+    }
+
+    private static boolean isWorker() {
+        return Thread.currentThread() instanceof Worker;
+    }
+
+    /**
+     * Applies all pending changes and stops the workers. Changes submitted afterwards are rejected.
+     */
+    @Override
+    public void close() {
+        for (var stripe : stripes) {
+            stripe.close();
+        }
+    }
+
+    private Stripe stripeFor(String contextName) {
+        int hash = contextName.hashCode();
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+
+    private static class Stripe {
+        private static final Runnable STOP = () -> {
+        };
+
+        private final BlockingQueue<Runnable> queue;
+        private final Worker worker;
+        private final ReentrantLock submitLock = new ReentrantLock();
+        private final Object completion = new Object();
+        private volatile long submitted;
+        private long completed;
+        private boolean closed;
+
+        Stripe(int index, int queueCapacity) {
+            queue = new ArrayBlockingQueue<>(queueCapacity);
+            worker = new Worker(this::work, "state-extension-recorder-" + index);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        void submit(Runnable change) {
+            submitLock.lock();
+            try {
+                if (closed) {
+                    throw new IllegalStateException("State recording was stopped");
+                }
+                queue.put(change);
+                submitted++;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while queueing state change", ex);
+            } finally {
+                submitLock.unlock();
+            }
+        }
+
+        void await() {
+            var target = submitted;
+            synchronized (completion) {
+                while (completed < target) {
+                    try {
+                        completion.wait();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+
+        void close() {
+            submitLock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                queue.put(STOP);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                worker.interrupt();
+                return;
+            } finally {
+                submitLock.unlock();
+            }
+            if (worker != Thread.currentThread()) {
+                try {
+                    worker.join();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void work() {
+            while (true) {
+                Runnable change;
+                try {
+                    change = queue.take();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                if (change == STOP) {
+                    return;
+                }
+                try {
+                    change.run();
+                } catch (Throwable ex) {
+                    // errors must not stop the worker either, waiting reads and submits would block forever
+                    notifier().error("Asynchronous state change failed: " + ex);
+                } finally {
+                    synchronized (completion) {
+                        completed++;
+                        completion.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+
+    private static class Worker extends Thread {
+        Worker(Runnable runnable, String name) {
+            super(runnable, name);
+        }
+    }
+}
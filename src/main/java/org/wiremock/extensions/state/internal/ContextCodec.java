@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal;
+
+import org.wiremock.extensions.state.internal.model.CompactMap;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of a {@link Context}.
+ * <p>
+ * Numbers are encoded as variable-length integers, strings as UTF-8 prefixed by their length. Intended for stores keeping contexts
+ * outside the heap, not as exchange format between versions of this extension.
+ */
+public final class ContextCodec {
+
+    private static final byte VERSION = 1;
+
+    private ContextCodec() {
+    }
+
+    public static byte[] encode(Context context) {
+        var writer = new Writer();
+        writer.writeByte(VERSION);
+        writer.writeString(context.getContextName());
+        writer.writeVarLong(context.getUpdateCount());
+        if (context.getExpirationSeconds() == null) {
+            writer.writeByte((byte) 0);
+        } else {
+            writer.writeByte((byte) 1);
+            writer.writeVarLong(context.getExpirationSeconds());
+        }
+        writer.writeMap(context.getProperties());
+        writer.writeVarLong(context.getList().size());
+        context.getList().forEach(writer::writeMap);
+        return writer.toByteArray();
+    }
+
+    public static Context decode(byte[] bytes) {
+        var reader = new Reader(bytes);
+        var version = reader.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException(String.format("Unsupported context encoding version: %d", version));
+        }
+        var context = new Context(reader.readString());
+        context.setUpdateCount(reader.readVarLong());
+        if (reader.readByte() != 0) {
+            context.setExpirationSeconds(reader.readVarLong());
+        }
+        reader.readMapInto(context.getProperties());
+        var listSize = (int) reader.readVarLong();
+        for (int i = 0; i < listSize; i++) {
+            var entry = new HashMap<String, String>();
+            reader.readMapInto(entry);
+            context.getList().add(CompactMap.of(entry));
+        }
+        return context;
+    }
+
+    private static class Writer {
+        private byte[] buffer = new byte[256];
+        private int position = 0;
+
+        void writeByte(byte value) {
+            ensureCapacity(1);
+            buffer[position++] = value;
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+            } else {
+                var bytes = value.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(bytes.length + 1L);
+                ensureCapacity(bytes.length);
+                System.arraycopy(bytes, 0, buffer, position, bytes.length);
+                position += bytes.length;
+            }
+        }
+
+        void writeMap(Map<String, String> map) {
+            writeVarLong(map.size());
+            map.forEach((key, value) -> {
+                writeString(key);
+                writeString(value);
+            });
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensureCapacity(int additional) {
+            if (position + additional > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + additional));
+            }
+        }
+    }
+
+    private static class Reader {
+        private final byte[] buffer;
+        private int position = 0;
+
+        Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        byte readByte() {
+            return buffer[position++];
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = buffer[position++];
+                value |= (long) (current & 0x7F) << shift;
+                shift += 7;
+            } while ((current & 0x80) != 0);
+            return value;
+        }
+
+        String readString() {
+            var length = (int) readVarLong();
+            if (length == 0) {
+                return null;
+            }
+            var value = new String(buffer, position, length - 1, StandardCharsets.UTF_8);
+            position += length - 1;
+            return value;
+        }
+
+        void readMapInto(Map<String, String> map) {
+            var size = (int) readVarLong();
+            for (int i = 0; i < size; i++) {
+                map.put(readString(), readString());
+            }
+        }
+    }
+}
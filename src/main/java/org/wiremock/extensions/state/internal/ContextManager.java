@@ -16,25 +16,80 @@
 package org.wiremock.extensions.state.internal;
 
 import com.github.tomakehurst.wiremock.store.Store;
+import org.wiremock.extensions.state.StateJournal;
+import org.wiremock.extensions.state.StringInterner;
 import org.wiremock.extensions.state.internal.model.Context;
+import org.wiremock.extensions.state.internal.model.ContextUpdate;
+import org.wiremock.extensions.state.internal.model.RingBufferList;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.wiremock.extensions.state.internal.ExtensionLogger.logger;
 
 public class ContextManager {
 
+    private static final int PARALLEL_SCAN_THRESHOLD = 10_000;
+    private static final int MIN_SWEEP_THRESHOLD = 1024;
     private final String CONTEXT_KEY_PREFIX = "context:";
     private final Store<String, Object> store;
     private final TransactionManager transactionManager;
+    private final StateJournal journal;
+    private final StringInterner interner;
+    private final AsyncRecorder asyncRecorder;
+    private final NavigableSet<String> contextIndex = new ConcurrentSkipListSet<>();
+    private final AtomicInteger createdSinceSweep = new AtomicInteger();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private volatile int sweepThreshold = MIN_SWEEP_THRESHOLD;
 
     public ContextManager(Store<String, Object> store, TransactionManager transactionManager) {
+        this(store, transactionManager, null);
+    }
+
+    public ContextManager(Store<String, Object> store, TransactionManager transactionManager, StateJournal journal) {
+        this(store, transactionManager, journal, null);
+    }
+
+    /**
+     * @param journal  Journal to write all changes to before applying them - or {@code null} to not journal changes.
+     * @param interner Interner for property keys and values - or {@code null} to not intern them.
+     */
+    public ContextManager(Store<String, Object> store, TransactionManager transactionManager, StateJournal journal, StringInterner interner) {
+        this(store, transactionManager, journal, interner, null);
+    }
+
+    /**
+     * @param journal       Journal to write all changes to before applying them - or {@code null} to not journal changes.
+     * @param interner      Interner for property keys and values - or {@code null} to not intern them.
+     * @param asyncRecorder Recorder to apply changes submitted via {@link #submitChange(String, String, Runnable)} in the
+     *                      background - or {@code null} to apply them directly.
+     */
+    public ContextManager(
+        Store<String, Object> store,
+        TransactionManager transactionManager,
+        StateJournal journal,
+        StringInterner interner,
+        AsyncRecorder asyncRecorder
+    ) {
         this.store = store;
         this.transactionManager = transactionManager;
+        this.journal = journal;
+        this.interner = interner;
+        this.asyncRecorder = asyncRecorder;
+        getStoredContextNames().forEach(contextIndex::add);
     }
 
     private static Supplier<Context> createNewContext(String contextName) {
@@ -49,7 +104,76 @@ public class ContextManager {
      * @return Optional with a copy of the context - or empty.
      */
     public Optional<Context> getContextCopy(String contextName) {
-        return getSafeContextCopy(contextName);
+        return getContext(contextName).map(Context::new);
+    }
+
+    /**
+     * Searches for the context by the given name without copying it.
+     * <p>
+     * The returned context is a read-only snapshot: it is shared with other readers and must not be modified.
+     *
+     * @param contextName The context name to search for.
+     * @return Optional with a snapshot of the context - or empty.
+     */
+    public Optional<Context> getContext(String contextName) {
+        awaitChanges(contextName);
+        var context = store.get(createContextKey(contextName)).map(it -> (Context) it);
+        if (context.isEmpty()) {
+            pruneContextIndex(contextName);
+        }
+        return context;
+    }
+
+    /**
+     * Checks whether a context with the given name exists, without accessing its content.
+     *
+     * @param contextName The context name to search for.
+     * @return true if the context exists.
+     */
+    public boolean exists(String contextName) {
+        awaitChanges(contextName);
+        var exists = store.get(createContextKey(contextName)).isPresent();
+        if (!exists) {
+            pruneContextIndex(contextName);
+        }
+        return exists;
+    }
+
+    /**
+     * Applies a change of a context - in the background if asynchronous recording is enabled, directly otherwise. Changes of the
+     * same context are applied in the order they were submitted, reads of a context wait for its pending changes.
+     *
+     * @param requestId   ID of the request performing this action.
+     * @param contextName Name of the context to change.
+     * @param change      The change, calling the update methods of this manager.
+     */
+    public void submitChange(String requestId, String contextName, Runnable change) {
+        if (asyncRecorder == null) {
+            change.run();
+            return;
+        }
+        transactionManager.retainTransactions(requestId);
+        try {
+            asyncRecorder.submit(contextName, () -> {
+                try {
+                    change.run();
+                } finally {
+                    transactionManager.releaseTransactions(requestId);
+                }
+            });
+        } catch (RuntimeException ex) {
+            transactionManager.releaseTransactions(requestId);
+            throw ex;
+        }
+    }
+
+    /**
+     * Applies all pending background changes and stops asynchronous recording. Changes submitted afterwards are rejected.
+     */
+    public void stopAsyncRecording() {
+        if (asyncRecorder != null) {
+            asyncRecorder.close();
+        }
     }
 
     /**
@@ -60,83 +184,234 @@ public class ContextManager {
      */
     public void deleteContext(String requestId, String contextName) {
         transactionManager.withTransaction(requestId, contextName, (transaction) -> {
+            journalDelete(contextName);
             store.remove(createContextKey(contextName));
+            contextIndex.remove(contextName);
             logger().info(contextName, "deleted");
         });
     }
 
     /**
-     * Iterates over all contexts, passing a safe copy to the consumer.
+     * Deletes the given contexts in bulk. Silently ignores non-existing contexts.
      * <p>
-     * Silently ignores non-existing contexts.
+     * The contexts are looked up in the store, so contexts created by other managers on the same store are deleted as well.
      *
-     * @param requestId ID of the request performing this action.
-     * @param consumer  Action to be performed on the copy of the context.
+     * @param contextNames Names of the contexts to delete.
      */
-    public void onEach(String requestId, Consumer<Context> consumer) {
-        store.getAllKeys()
-            .filter(it -> it.startsWith(CONTEXT_KEY_PREFIX))
-            .forEach(key -> {
-                var contextName = getContextNameFromContextKey(key);
-                transactionManager
-                    .withTransaction(
-                        requestId,
-                        contextName,
-                        (transaction) -> {
-                            getSafeContextCopy(contextName).ifPresent(consumer);
-                        });
-            });
+    public void deleteContexts(Collection<String> contextNames) {
+        contextNames.forEach(this::awaitChanges);
+        deleteStoredContexts(contextNames.stream().distinct().collect(Collectors.toList()));
+    }
+
+    /**
+     * Deletes all contexts whose names match the given predicate, in bulk.
+     * <p>
+     * Only the names in the context index are scanned, contexts are not read. The index is reconciled with the store keys before, so
+     * contexts of other managers on the same store are included. Large indexes are scanned in parallel, so the predicate must be
+     * thread-safe.
+     *
+     * @param predicate Predicate on the context name.
+     */
+    public void deleteContextsMatching(Predicate<String> predicate) {
+        awaitAllChanges();
+        reconcileContextIndex();
+        var names = contextIndex.size() < PARALLEL_SCAN_THRESHOLD ? contextIndex.stream() : contextIndex.parallelStream();
+        deleteStoredContexts(names.filter(predicate).collect(Collectors.toList()));
     }
 
+    /**
+     * Returns the names of all contexts, in ascending order.
+     * <p>
+     * The names are taken from the context index, after reconciling it with the store keys. They may include contexts that expired
+     * in the meantime.
+     *
+     * @return Names of all contexts.
+     */
+    public Stream<String> getContextNames() {
+        awaitAllChanges();
+        reconcileContextIndex();
+        return contextIndex.stream();
+    }
+
+    /**
+     * Returns the names of all contexts starting with the given prefix, in ascending order, without scanning all names.
+     * <p>
+     * The names are taken from the context index. They may include contexts that expired in the meantime and miss contexts created
+     * by other managers on the same store since the index was last reconciled.
+     *
+     * @param prefix Prefix of the context names.
+     * @return Names of all matching contexts.
+     */
+    public Stream<String> getContextNamesStartingWith(String prefix) {
+        awaitAllChanges();
+        return contextIndex.subSet(prefix, prefix + Character.MAX_VALUE).stream();
+    }
+
+    /**
+     * Deletes all contexts in bulk, like {@link #deleteContextsMatching(Predicate)}.
+     *
+     * @param requestId ID of the request performing this action. Bulk deletions record no transactions, so nothing is kept for it.
+     */
     public void deleteAllContexts(String requestId) {
-        store.getAllKeys()
-            .filter(it -> it.startsWith(CONTEXT_KEY_PREFIX))
-            .forEach(key -> {
-                transactionManager
-                    .withTransaction(
-                        requestId,
-                        getContextNameFromContextKey(key),
-                        (transaction) -> {
-                            store.remove(key);
-                        });
-                logger().info("allContexts", "deleted");
-            });
+        awaitAllChanges();
+        reconcileContextIndex();
+        deleteStoredContexts(new ArrayList<>(contextIndex));
     }
 
     public void createOrUpdateContextState(String requestId, String contextName, Map<String, String> properties) {
+        updateContext(requestId, contextName, new ContextUpdate().withProperties(properties));
+    }
+
+    public void createOrUpdateContextList(String requestId, String contextName, Consumer<RingBufferList<Map<String, String>>> consumer) {
+        updateContext(requestId, contextName, new ContextUpdate().withListChange(consumer));
+    }
+
+    /**
+     * Applies a batch of changes to a context with a single lookup, lock acquisition and write-back. Creates the context if it does
+     * not exist.
+     * <p>
+     * Properties are applied first, followed by list changes and the expiration. Counts as one update of the context if properties
+     * or the list are changed.
+     *
+     * @param requestId   ID of the request performing this action.
+     * @param contextName Name of the context.
+     * @param update      Changes to apply.
+     */
+    public void updateContext(String requestId, String contextName, ContextUpdate update) {
+        if (update.isEmpty()) {
+            return;
+        }
         transactionManager.withTransaction(requestId, contextName, (transaction) -> {
             var contextKey = createContextKey(contextName);
-            var context = store.get(contextKey)
-                .map(it -> (Context) it)
+            var existingContext = store.get(contextKey).map(it -> (Context) it);
+            var context = existingContext
+                .map(Context::copyForUpdate)
                 .orElseGet(createNewContext(contextName));
-            properties.forEach((k, v) -> {
+            update.getProperties().forEach(properties -> properties.forEach((k, v) -> {
                 if (v.equals("null")) {
                     context.getProperties().remove(k);
                     logger().info(contextName, String.format("property '%s' removed", k));
                 } else {
-                    context.getProperties().put(k, v);
+                    context.getProperties().put(intern(k), intern(v));
                     logger().info(contextName, String.format("property '%s' updated", k));
                 }
-            });
-            transaction.recordWrite(context::incUpdateCount);
+            }));
+            update.getListChanges().forEach(listChange -> listChange.accept(context.getList()));
+            if (update.isWrite()) {
+                transaction.recordWrite(context::incUpdateCount);
+            }
+            if (update.getExpirationSeconds() != null) {
+                context.setExpirationSeconds(update.getExpirationSeconds());
+                logger().info(contextName, String.format("expiration set to %ds", update.getExpirationSeconds()));
+            }
+            journalPut(context);
             store.put(contextKey, context);
+            if (existingContext.isEmpty()) {
+                contextIndex.add(contextName);
+                createdSinceSweep.incrementAndGet();
+            }
         });
+        sweepContextIndexIfNeeded();
     }
 
-    public void createOrUpdateContextList(String requestId, String contextName, Consumer<LinkedList<Map<String, String>>> consumer) {
+    /**
+     * Replaces a context by the given one (e.g. from a snapshot), keeping its update count. Waits for pending background changes of
+     * the context first, so they don't overwrite the restored context.
+     *
+     * @param requestId ID of the request performing this action.
+     * @param context   The context to store. Must not be modified afterwards.
+     */
+    public void restoreContext(String requestId, Context context) {
+        var contextName = context.getContextName();
+        awaitChanges(contextName);
         transactionManager.withTransaction(requestId, contextName, (transaction) -> {
-            var contextKey = createContextKey(contextName);
-            var context = store.get(contextKey)
-                .map(it -> (Context) it)
-                .orElseGet(createNewContext(contextName));
-            consumer.accept(context.getList());
-            transaction.recordWrite(context::incUpdateCount);
-            store.put(contextKey, context);
+            journalPut(context);
+            store.put(createContextKey(contextName), context);
+            if (contextIndex.add(contextName)) {
+                createdSinceSweep.incrementAndGet();
+            }
+            logger().info(contextName, "restored");
         });
+        sweepContextIndexIfNeeded();
+    }
+
+    /**
+     * Interns keys and values of the given properties (e.g. of a new list entry), if interning is enabled.
+     *
+     * @param properties Properties to intern.
+     * @return Equal properties, sharing keys and values with other contexts where possible.
+     */
+    public Map<String, String> internProperties(Map<String, String> properties) {
+        if (interner == null) {
+            return properties;
+        }
+        var interned = new HashMap<String, String>();
+        properties.forEach((k, v) -> interned.put(intern(k), intern(v)));
+        return interned;
     }
 
-    public Long numUpdates(String contextName) {
-        return store.get(createContextKey(contextName)).map(it -> ((Context) it).getUpdateCount()).orElse(0L);
+    /**
+     * Returns the update count of a context, without copying it.
+     *
+     * @param contextName Name of the context.
+     * @return The update count - or 0 if the context does not exist.
+     */
+    public long numUpdates(String contextName) {
+        awaitChanges(contextName);
+        var context = store.get(createContextKey(contextName));
+        if (context.isEmpty()) {
+            pruneContextIndex(contextName);
+            return 0;
+        }
+        return ((Context) context.get()).getUpdateCount();
+    }
+
+    private void awaitChanges(String contextName) {
+        if (asyncRecorder != null) {
+            asyncRecorder.await(contextName);
+        }
+    }
+
+    private void awaitAllChanges() {
+        if (asyncRecorder != null) {
+            asyncRecorder.awaitAll();
+        }
+    }
+
+    /**
+     * Deletes the given contexts while holding all their locks. The deletions are journaled at once, so they share as few disk syncs
+     * as possible.
+     */
+    private void deleteStoredContexts(List<String> contextNames) {
+        transactionManager.withLocks(contextNames, () -> {
+            var storedContextNames = contextNames.stream()
+                .filter(it -> store.get(createContextKey(it)).isPresent())
+                .collect(Collectors.toList());
+            if (journal != null && !storedContextNames.isEmpty()) {
+                journal.delete(storedContextNames);
+            }
+            storedContextNames.forEach(contextName -> {
+                store.remove(createContextKey(contextName));
+                logger().info(contextName, "deleted");
+            });
+            contextNames.forEach(contextIndex::remove);
+        });
+    }
+
+    private String intern(String value) {
+        return interner == null ? value : interner.intern(value);
+    }
+
+    private void journalPut(Context context) {
+        if (journal != null) {
+            journal.put(context);
+        }
+    }
+
+    private void journalDelete(String contextName) {
+        if (journal != null) {
+            journal.delete(contextName);
+        }
     }
 
     private String getContextNameFromContextKey(String key) {
@@ -147,7 +422,50 @@ public class ContextManager {
         return CONTEXT_KEY_PREFIX + contextName;
     }
 
-    private Optional<Context> getSafeContextCopy(String contextName) {
-        return store.get(createContextKey(contextName)).map(it -> (Context) it).map(Context::new);
+    private Stream<String> getStoredContextNames() {
+        return store.getAllKeys()
+            .filter(it -> it.startsWith(CONTEXT_KEY_PREFIX))
+            .map(this::getContextNameFromContextKey);
+    }
+
+    /**
+     * Removes a context from the index if it's not in the store anymore (e.g. after expiration or eviction). Re-adds it if it was
+     * created concurrently, so no lock is needed.
+     */
+    private void pruneContextIndex(String contextName) {
+        if (contextIndex.remove(contextName) && store.get(createContextKey(contextName)).isPresent()) {
+            contextIndex.add(contextName);
+        }
+    }
+
+    /**
+     * Reconciles the index with the store keys once the number of contexts created since the last sweep reaches the number of
+     * contexts alive back then, so the index stays within twice the number of live contexts and the cost of scanning the store keys
+     * is amortized over the creations.
+     */
+    private void sweepContextIndexIfNeeded() {
+        if (createdSinceSweep.get() < sweepThreshold || !sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            reconcileContextIndex();
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * Adds names of contexts created by other managers on the same store and removes names of contexts the store expired or evicted
+     * without being looked up again.
+     */
+    private void reconcileContextIndex() {
+        createdSinceSweep.set(0);
+        var storedContextNames = getStoredContextNames().collect(Collectors.toSet());
+        contextIndex.addAll(storedContextNames);
+        contextIndex.stream()
+            .filter(it -> !storedContextNames.contains(it))
+            .collect(Collectors.toList())
+            .forEach(this::pruneContextIndex);
+        sweepThreshold = Math.max(MIN_SWEEP_THRESHOLD, storedContextNames.size());
     }
 }
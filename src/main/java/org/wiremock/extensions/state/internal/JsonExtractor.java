@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.tomakehurst.wiremock.common.Json;
+import com.github.tomakehurst.wiremock.core.ConfigurationException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Extracts multiple values from a JSON document in a single streaming pass, without parsing it into a tree or a string.
+ * <p>
+ * Supports definite JSON paths only: {@code $}, {@code .name}, {@code ['name']} and {@code [index]}. Parsing stops as soon as all
+ * values are found. Objects and arrays are extracted as JSON strings, {@code null} and missing values are omitted.
+ */
+public class JsonExtractor {
+
+    private static final JsonExtractor EMPTY = new JsonExtractor(List.of());
+
+    private final List<Target> targets;
+
+    private JsonExtractor(List<Target> targets) {
+        this.targets = targets;
+    }
+
+    /**
+     * Compiles the given paths.
+     *
+     * @param paths Names of the values to extract, mapped to their JSON path. May be {@code null}.
+     * @return The extractor.
+     * @throws ConfigurationException if a path is not supported.
+     */
+    public static JsonExtractor compile(Map<String, String> paths) {
+        if (paths == null || paths.isEmpty()) {
+            return EMPTY;
+        }
+        var targets = new ArrayList<Target>();
+        paths.forEach((name, path) -> targets.add(new Target(name, parsePath(path))));
+        return new JsonExtractor(targets);
+    }
+
+    public boolean isEmpty() {
+        return targets.isEmpty();
+    }
+
+    /**
+     * Extracts all values from the given document. If the document is not valid JSON, the values found so far are returned.
+     *
+     * @param json The JSON document.
+     * @return The extracted values by name.
+     */
+    public Map<String, String> extract(byte[] json) {
+        var extraction = new Extraction(targets.size());
+        if (json == null || json.length == 0 || targets.isEmpty()) {
+            return extraction.values;
+        }
+        try (var parser = Json.getObjectMapper().getFactory().createParser(json)) {
+            if (parser.nextToken() != null) {
+                walk(parser, targets, 0, extraction);
+            }
+        } catch (IOException ex) {
+            // keep what was found so far
+        }
+        return extraction.values;
+    }
+
+    /**
+     * Walks the value the parser is positioned at. All candidates match the path up to the given depth.
+     */
+    private void walk(JsonParser parser, List<Target> candidates, int depth, Extraction extraction) throws IOException {
+        var token = parser.currentToken();
+        var deeper = new ArrayList<Target>();
+        var complete = new ArrayList<Target>();
+        for (var candidate : candidates) {
+            (candidate.segments.length == depth ? complete : deeper).add(candidate);
+        }
+        if (!complete.isEmpty()) {
+            if (token.isScalarValue()) {
+                if (token != JsonToken.VALUE_NULL) {
+                    var value = parser.getText();
+                    complete.forEach(it -> extraction.found(it, value));
+                }
+            } else {
+                // the value itself is needed: read it as tree and resolve the deeper paths on the tree
+                JsonNode node = parser.readValueAsTree();
+                complete.forEach(it -> extraction.found(it, node.toString()));
+                deeper.forEach(it -> resolve(node, it, depth).ifPresent(value -> extraction.found(it, value)));
+            }
+            return;
+        }
+        if (token == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var name = parser.getCurrentName();
+                parser.nextToken();
+                walkChild(parser, deeper, depth, name, extraction);
+                if (extraction.isDone()) {
+                    return;
+                }
+            }
+        } else if (token == JsonToken.START_ARRAY) {
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                walkChild(parser, deeper, depth, index++, extraction);
+                if (extraction.isDone()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void walkChild(JsonParser parser, List<Target> candidates, int depth, Object segment, Extraction extraction) throws IOException {
+        var matching = new ArrayList<Target>();
+        for (var candidate : candidates) {
+            if (candidate.segments[depth].equals(segment)) {
+                matching.add(candidate);
+            }
+        }
+        if (matching.isEmpty()) {
+            parser.skipChildren();
+        } else {
+            walk(parser, matching, depth + 1, extraction);
+        }
+    }
+
+    private static Optional<String> resolve(JsonNode node, Target target, int depth) {
+        for (int i = depth; i < target.segments.length && node != null; i++) {
+            var segment = target.segments[i];
+            node = segment instanceof Integer ? node.get((Integer) segment) : node.get((String) segment);
+        }
+        if (node == null || node.isNull()) {
+            return Optional.empty();
+        }
+        return Optional.of(node.isValueNode() ? node.asText() : node.toString());
+    }
+
+    /**
+     * Parses a definite JSON path into field names and array indexes.
+     */
+    static Object[] parsePath(String path) {
+        if (path == null || !path.startsWith("$")) {
+            throw unsupportedPath(path);
+        }
+        var segments = new ArrayList<>();
+        int position = 1;
+        while (position < path.length()) {
+            var c = path.charAt(position);
+            if (c == '.') {
+                int end = position + 1;
+                while (end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[') {
+                    end++;
+                }
+                var name = path.substring(position + 1, end);
+                if (name.isEmpty() || name.equals("*")) {
+                    throw unsupportedPath(path);
+                }
+                segments.add(name);
+                position = end;
+            } else if (c == '[') {
+                int end = path.indexOf(']', position);
+                if (end < 0) {
+                    throw unsupportedPath(path);
+                }
+                var content = path.substring(position + 1, end).trim();
+                if (content.length() >= 2 && (content.startsWith("'") && content.endsWith("'") || content.startsWith("\"") && content.endsWith("\""))) {
+                    segments.add(content.substring(1, content.length() - 1));
+                } else if (content.matches("\\d+")) {
+                    segments.add(Integer.valueOf(content));
+                } else {
+                    throw unsupportedPath(path);
+                }
+                position = end + 1;
+            } else {
+                throw unsupportedPath(path);
+            }
+        }
+        return segments.toArray();
+    }
+
+    private static ConfigurationException unsupportedPath(String path) {
+        return new ConfigurationException(String.format("Unsupported JSON path for extraction: '%s' - only definite paths like $.a.b[0] are supported", path));
+    }
+
+    private static class Target {
+        private final String name;
+        private final Object[] segments;
+
+        Target(String name, Object[] segments) {
+            this.name = name;
+            this.segments = segments;
+        }
+    }
+
+    private static class Extraction {
+        private final Map<String, String> values = new HashMap<>();
+        private int remaining;
+
+        Extraction(int remaining) {
+            this.remaining = remaining;
+        }
+
+        void found(Target target, String value) {
+            if (!values.containsKey(target.name)) {
+                values.put(target.name, value);
+                remaining--;
+            }
+        }
+
+        boolean isDone() {
+            return remaining == 0;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+
+import java.util.function.Function;
+
+/**
+ * Cache for configuration derived from extension {@link Parameters}.
+ * <p>
+ * WireMock keeps one {@link Parameters} instance per stub mapping, so entries are keyed by identity: editing a stub creates a new
+ * instance and the entry of the old one is dropped as soon as it's garbage collected.
+ *
+ * @param <T> Type of the derived configuration.
+ */
+public class ParametersCache<T> {
+
+    private final Cache<Parameters, T> cache = Caffeine.newBuilder().weakKeys().build();
+    private final Function<Parameters, T> parser;
+
+    public ParametersCache(Function<Parameters, T> parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Returns the configuration for the given parameters, parsing them on first access only.
+     *
+     * @param parameters Parameters of the stub mapping.
+     * @return The parsed configuration. Must not be modified.
+     */
+    public T get(Parameters parameters) {
+        return cache.get(parameters, parser);
+    }
+}
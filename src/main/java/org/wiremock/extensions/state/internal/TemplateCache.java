@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.HandlebarsOptimizedTemplate;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.TemplateEngine;
+
+/**
+ * Bounded cache of compiled templates, keyed by the template source.
+ * <p>
+ * Stubs sharing the same template source share the compiled template. Templates of removed or changed stubs are evicted
+ * once the cache reaches its maximum size.
+ */
+public class TemplateCache {
+
+    private static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private final TemplateEngine templateEngine;
+    private final Cache<String, HandlebarsOptimizedTemplate> cache;
+
+    public TemplateCache(TemplateEngine templateEngine) {
+        this(templateEngine, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public TemplateCache(TemplateEngine templateEngine, long maximumSize) {
+        this.templateEngine = templateEngine;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Renders the given template, compiling it only if it's not cached yet.
+     *
+     * @param model    Model to render the template with.
+     * @param template Template source.
+     * @return The rendered template.
+     */
+    public String render(Object model, String template) {
+        return cache.get(template, templateEngine::getUncachedTemplate).apply(model);
+    }
+
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+}
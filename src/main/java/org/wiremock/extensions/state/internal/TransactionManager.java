@@ -15,56 +15,144 @@
  */
 package org.wiremock.extensions.state.internal;
 
-import com.github.tomakehurst.wiremock.store.Store;
 import org.wiremock.extensions.state.internal.model.Transaction;
 
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
-import java.util.function.Function;
 
+/**
+ * Tracks the contexts touched by a request and serializes access to single contexts.
+ * <p>
+ * Transactions are held in memory, keyed by request ID, and removed once the request completed and all its pending background
+ * changes were applied. Locking is striped by context name: operations on the same context are serialized, operations on different
+ * contexts can run in parallel.
+ */
 public class TransactionManager {
 
-    private final String TRANSACTION_KEY_PREFIX = "transaction:";
-    private final Store<String, Object> store;
+    private static final int LOCK_STRIPES = 256;
+
+    private final Map<String, Map<String, Transaction>> transactions = new ConcurrentHashMap<>();
+    private final Map<String, Integer> pendingChanges = new ConcurrentHashMap<>();
+    private final Set<String> completedRequests = ConcurrentHashMap.newKeySet();
+    private final Object[] locks = new Object[LOCK_STRIPES];
 
-    public TransactionManager(Store<String, Object> store) {
-        this.store = store;
+    public TransactionManager() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
     }
 
     public void withTransaction(String requestId, String contextName, Consumer<Transaction> consumer) {
-        var transactionKey = createTransactionKey(requestId);
-        synchronized (store) {
-            @SuppressWarnings("unchecked") var requestTransactions = store.get(transactionKey).map(it -> (Map<String, Transaction>) it).orElse(new HashMap<>());
-            var contextTransaction = requestTransactions.getOrDefault(contextName, new Transaction(contextName));
-            try {
-                consumer.accept(contextTransaction);
-            } finally {
-                requestTransactions.put(contextName, contextTransaction);
-                store.put(transactionKey, requestTransactions);
-            }
+        synchronized (lockFor(contextName)) {
+            var requestTransactions = transactions.computeIfAbsent(requestId, it -> new ConcurrentHashMap<>());
+            var contextTransaction = requestTransactions.computeIfAbsent(contextName, Transaction::new);
+            consumer.accept(contextTransaction);
         }
     }
 
     public void deleteTransaction(String requestId, String contextName) {
-        var transactionKey = createTransactionKey(requestId);
-        synchronized (store) {
-            @SuppressWarnings("unchecked") var requestTransactions = store.get(transactionKey).map(it -> (Map<String, Transaction>) it).orElse(new HashMap<>());
+        transactions.computeIfPresent(requestId, (id, requestTransactions) -> {
             requestTransactions.remove(contextName);
-        }
+            return requestTransactions.isEmpty() ? null : requestTransactions;
+        });
+    }
+
+    /**
+     * Removes all transactions of the given request. Cheap for requests that did not touch any context.
+     * <p>
+     * When background changes of the request are still pending, the transactions are kept until the last of them was applied, so
+     * all changes of a request count as one update per context.
+     *
+     * @param requestId ID of the completed request.
+     */
+    public void deleteTransactions(String requestId) {
+        pendingChanges.compute(requestId, (id, count) -> {
+            if (count == null) {
+                transactions.remove(requestId);
+            } else {
+                completedRequests.add(requestId);
+            }
+            return count;
+        });
+    }
+
+    /**
+     * Registers a pending background change of the given request. Its transactions are kept until the change is released.
+     *
+     * @param requestId ID of the request.
+     */
+    public void retainTransactions(String requestId) {
+        pendingChanges.merge(requestId, 1, Integer::sum);
+    }
+
+    /**
+     * Marks a pending background change of the given request as applied. Removes the transactions of the request once it completed
+     * and no further changes are pending.
+     *
+     * @param requestId ID of the request.
+     */
+    public void releaseTransactions(String requestId) {
+        pendingChanges.computeIfPresent(requestId, (id, count) -> {
+            if (count > 1) {
+                return count - 1;
+            }
+            if (completedRequests.remove(requestId)) {
+                transactions.remove(requestId);
+            }
+            return null;
+        });
     }
 
     public Set<String> getContextNamesByRequestId(String requestId) {
-        var transactionKey = createTransactionKey(requestId);
-        synchronized (store) {
-            @SuppressWarnings("unchecked") var requestTransactions = store.get(transactionKey).map(it -> (Map<String, Transaction>) it).orElse(new HashMap<>());
-            return new HashSet<>(requestTransactions.keySet());
+        return getRequestTransactions(requestId)
+            .map(it -> new HashSet<>(it.keySet()))
+            .orElseGet(HashSet::new);
+    }
+
+    /**
+     * Performs an action while holding the locks of all given contexts. Each lock is acquired once, in stripe order.
+     * <p>
+     * Meant for bulk operations - no transactions are recorded.
+     *
+     * @param contextNames Names of the contexts.
+     * @param action       Action to perform while holding the locks.
+     */
+    public void withLocks(Collection<String> contextNames, Runnable action) {
+        var stripes = contextNames.stream().mapToInt(TransactionManager::stripeFor).distinct().sorted().toArray();
+        withLocks(stripes, 0, action);
+    }
+
+    /**
+     * Returns the lock guarding the given context. Locks are shared between contexts whose names hash to the same stripe.
+     *
+     * @param contextName Name of the context.
+     * @return The monitor to synchronize on.
+     */
+    Object lockFor(String contextName) {
+        return locks[stripeFor(contextName)];
+    }
+
+    private static int stripeFor(String contextName) {
+        int hash = contextName.hashCode();
+        return (hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1);
+    }
+
+    private void withLocks(int[] stripes, int index, Runnable action) {
+        if (index == stripes.length) {
+            action.run();
+            return;
+        }
+        synchronized (locks[stripes[index]]) {
+            withLocks(stripes, index + 1, action);
         }
     }
 
-    private String createTransactionKey(String requestId) {
-        return TRANSACTION_KEY_PREFIX + requestId;
+    private Optional<Map<String, Transaction>> getRequestTransactions(String requestId) {
+        return Optional.ofNullable(transactions.get(requestId));
     }
 }
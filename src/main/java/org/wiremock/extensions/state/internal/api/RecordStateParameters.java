@@ -25,6 +25,8 @@ public class RecordStateParameters {
 
     private Map<String, String> state;
     private ListParameters list;
+    private String expiration;
+    private Map<String, String> extract;
 
     public ListParameters getList() {
         return list;
@@ -42,6 +44,22 @@ public class RecordStateParameters {
         this.context = context;
     }
 
+    public String getExpiration() {
+        return expiration;
+    }
+
+    public void setExpiration(String expiration) {
+        this.expiration = expiration;
+    }
+
+    public Map<String, String> getExtract() {
+        return extract;
+    }
+
+    public void setExtract(Map<String, String> extract) {
+        this.extract = extract;
+    }
+
     public Map<String, String> getState() {
         return state;
     }
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable map of properties, storing only an array of values per instance.
+ * <p>
+ * The keys are held by a shape that is shared by all maps with the same key set - e.g. all list entries recorded by the same stub.
+ * Used for list entries, which are never modified once recorded.
+ */
+public final class CompactMap extends AbstractMap<String, String> {
+
+    private static final int MAX_SHAPES = 10_000;
+    private static final Map<List<String>, Shape> shapes = new ConcurrentHashMap<>();
+
+    private final Shape shape;
+    private final String[] values;
+
+    private CompactMap(Shape shape, String[] values) {
+        this.shape = shape;
+        this.values = values;
+    }
+
+    /**
+     * Creates a compact copy of the given map. Returns the map itself if it's compact already.
+     *
+     * @param map The map to copy.
+     * @return An immutable map with the same entries.
+     */
+    public static CompactMap of(Map<String, String> map) {
+        if (map instanceof CompactMap) {
+            return (CompactMap) map;
+        }
+        var keys = map.keySet().toArray(new String[0]);
+        Arrays.sort(keys);
+        var shape = shapeOf(keys);
+        var values = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = map.get(shape.keys[i]);
+        }
+        return new CompactMap(shape, values);
+    }
+
+    private static Shape shapeOf(String[] keys) {
+        var keyList = List.of(keys);
+        var shape = shapes.get(keyList);
+        if (shape != null) {
+            return shape;
+        }
+        // don't let an unbounded number of key sets pile up - uncached shapes still work, they are just not shared
+        if (shapes.size() >= MAX_SHAPES) {
+            return new Shape(keys);
+        }
+        return shapes.computeIfAbsent(keyList, it -> new Shape(keys));
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return shape.indexOf(key) >= 0;
+    }
+
+    @Override
+    public String get(Object key) {
+        var index = shape.indexOf(key);
+        return index >= 0 ? values[index] : null;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < values.length;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        var entry = new SimpleImmutableEntry<>(shape.keys[index], values[index]);
+                        index++;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return values.length;
+            }
+        };
+    }
+
+    /**
+     * Sorted key set shared by multiple maps.
+     */
+    private static final class Shape {
+        private static final int MAX_LINEAR_SEARCH = 8;
+
+        private final String[] keys;
+        private final Map<String, Integer> indexes;
+
+        Shape(String[] keys) {
+            this.keys = keys;
+            if (keys.length > MAX_LINEAR_SEARCH) {
+                indexes = new HashMap<>();
+                for (int i = 0; i < keys.length; i++) {
+                    indexes.put(keys[i], i);
+                }
+            } else {
+                indexes = null;
+            }
+        }
+
+        int indexOf(Object key) {
+            if (indexes != null) {
+                return indexes.getOrDefault(key, -1);
+            }
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
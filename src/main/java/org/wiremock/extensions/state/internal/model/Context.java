@@ -20,13 +20,21 @@ import java.util.LinkedList;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * State of a single context.
+ * <p>
+ * Instances held by the store are never modified once stored: updates are applied to a copy (see {@link #copyForUpdate()})
+ * which then replaces the stored instance. This allows reading stored instances without locking or copying. List entries are
+ * never modified either, so they are shared between copies.
+ */
 public class Context {
 
     private final String contextName;
     private final Map<String, String> properties = new HashMap<>();
-    private final LinkedList<Map<String, String>> list = new LinkedList<>();
+    private final RingBufferList<Map<String, String>> list = new RingBufferList<>();
     private final LinkedList<String> requests = new LinkedList<>();
-    private Long updateCount = 0L;
+    private long updateCount;
+    private Long expirationSeconds;
 
     public Context(Context other) {
         this.contextName = other.contextName;
@@ -34,30 +42,66 @@ public class Context {
         this.list.addAll(other.list.stream().map(HashMap::new).collect(Collectors.toList()));
         this.requests.addAll(other.requests);
         this.updateCount = other.updateCount;
+        this.expirationSeconds = other.expirationSeconds;
     }
 
     public Context(String contextName) {
         this.contextName = contextName;
     }
 
+    /**
+     * Creates a copy to apply updates to. Properties and list are copied, the (immutable) list entries are shared. The copy is linear
+     * in the size of the context, so every update of a context with a long list is, too.
+     *
+     * @return A copy of this context that can be modified.
+     */
+    public Context copyForUpdate() {
+        var copy = new Context(contextName);
+        copy.properties.putAll(properties);
+        copy.list.addAll(list);
+        copy.requests.addAll(requests);
+        copy.updateCount = updateCount;
+        copy.expirationSeconds = expirationSeconds;
+        return copy;
+    }
+
     public String getContextName() {
         return contextName;
     }
 
-    public Long getUpdateCount() {
+    public long getUpdateCount() {
         return updateCount;
     }
 
-    public Long incUpdateCount() {
-        updateCount = updateCount + 1;
-        return updateCount;
+    public void setUpdateCount(long updateCount) {
+        this.updateCount = updateCount;
+    }
+
+    /**
+     * Increments the update count. Only called on copies not yet stored, so no synchronization is needed.
+     *
+     * @return The new update count.
+     */
+    public long incUpdateCount() {
+        return ++updateCount;
+    }
+
+    /**
+     * @return Expiration of this context in seconds, overriding the default of the store - or {@code null} to use the default.
+     */
+    public Long getExpirationSeconds() {
+        return expirationSeconds;
+    }
+
+    public void setExpirationSeconds(Long expirationSeconds) {
+        this.expirationSeconds = expirationSeconds;
     }
 
     public Map<String, String> getProperties() {
         return properties;
     }
 
-    public LinkedList<Map<String, String>> getList() {
+    public RingBufferList<Map<String, String>> getList() {
         return list;
     }
 
@@ -29,7 +29,7 @@ public final class ContextTemplateModel {
     }
 
 
-    public Long getUpdateCount() {
+    public long getUpdateCount() {
         return context.getUpdateCount();
     }
 }
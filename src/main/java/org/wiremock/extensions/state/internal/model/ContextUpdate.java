@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Batch of changes to a single context, applied with one lookup and one write-back.
+ *
+ * @see org.wiremock.extensions.state.internal.ContextManager#updateContext(String, String, ContextUpdate)
+ */
+public class ContextUpdate {
+
+    private final List<Map<String, String>> properties = new ArrayList<>();
+    private final List<Consumer<RingBufferList<Map<String, String>>>> listChanges = new ArrayList<>();
+    private Long expirationSeconds;
+
+    /**
+     * Adds properties to set. A value of {@code "null"} removes the property.
+     */
+    public ContextUpdate withProperties(Map<String, String> properties) {
+        this.properties.add(properties);
+        return this;
+    }
+
+    /**
+     * Adds a change of the list. Changes are applied in the order they were added.
+     */
+    public ContextUpdate withListChange(Consumer<RingBufferList<Map<String, String>>> listChange) {
+        this.listChanges.add(listChange);
+        return this;
+    }
+
+    /**
+     * Sets the expiration, overriding the default expiration of the store. Does not count as update of the context.
+     */
+    public ContextUpdate withExpirationSeconds(long expirationSeconds) {
+        this.expirationSeconds = expirationSeconds;
+        return this;
+    }
+
+    public List<Map<String, String>> getProperties() {
+        return properties;
+    }
+
+    public List<Consumer<RingBufferList<Map<String, String>>>> getListChanges() {
+        return listChanges;
+    }
+
+    public Long getExpirationSeconds() {
+        return expirationSeconds;
+    }
+
+    /**
+     * @return true if this update changes properties or the list - and thus counts as update of the context.
+     */
+    public boolean isWrite() {
+        return !properties.isEmpty() || !listChanges.isEmpty();
+    }
+
+    public boolean isEmpty() {
+        return !isWrite() && expirationSeconds == null;
+    }
+}
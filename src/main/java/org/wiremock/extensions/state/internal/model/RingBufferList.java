@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Array-backed list with constant time access to first, last and indexed elements.
+ * <p>
+ * Elements are held in a circular buffer, so adding or removing at either end does not shift elements. Inserting or removing in
+ * the middle shifts the elements of the shorter side. Copying the list (as done on every context update) is a single array copy,
+ * but still linear in its size.
+ *
+ * @param <E> Type of the elements.
+ */
+public class RingBufferList<E> extends AbstractList<E> implements RandomAccess {
+
+    private static final Object[] EMPTY = {};
+    private static final int MIN_CAPACITY = 8;
+
+    private Object[] elements = EMPTY;
+    private int head;
+    private int size;
+
+    public RingBufferList() {
+    }
+
+    public RingBufferList(Collection<? extends E> other) {
+        var array = other.toArray();
+        elements = Arrays.copyOf(array, array.length, Object[].class);
+        size = elements.length;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkIndex(index, size);
+        return (E) elements[physicalIndex(index)];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E set(int index, E element) {
+        checkIndex(index, size);
+        var physicalIndex = physicalIndex(index);
+        var previous = (E) elements[physicalIndex];
+        elements[physicalIndex] = element;
+        return previous;
+    }
+
+    @Override
+    public boolean add(E element) {
+        addLast(element);
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> other) {
+        var array = other.toArray();
+        if (array.length == 0) {
+            return false;
+        }
+        ensureCapacity(size + array.length);
+        var tail = physicalIndex(size);
+        var firstPart = Math.min(array.length, elements.length - tail);
+        System.arraycopy(array, 0, elements, tail, firstPart);
+        System.arraycopy(array, firstPart, elements, 0, array.length - firstPart);
+        size += array.length;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        checkIndex(index, size + 1);
+        ensureCapacity(size + 1);
+        if (index < size / 2) {
+            head = physicalIndex(elements.length - 1);
+            for (int i = 0; i < index; i++) {
+                elements[physicalIndex(i)] = elements[physicalIndex(i + 1)];
+            }
+        } else {
+            for (int i = size; i > index; i--) {
+                elements[physicalIndex(i)] = elements[physicalIndex(i - 1)];
+            }
+        }
+        elements[physicalIndex(index)] = element;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public E remove(int index) {
+        var removed = get(index);
+        if (index < size / 2) {
+            for (int i = index; i > 0; i--) {
+                elements[physicalIndex(i)] = elements[physicalIndex(i - 1)];
+            }
+            elements[head] = null;
+            head = physicalIndex(1);
+        } else {
+            for (int i = index; i < size - 1; i++) {
+                elements[physicalIndex(i)] = elements[physicalIndex(i + 1)];
+            }
+            elements[physicalIndex(size - 1)] = null;
+        }
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        elements = EMPTY;
+        head = 0;
+        size = 0;
+        modCount++;
+    }
+
+    public void addFirst(E element) {
+        add(0, element);
+    }
+
+    public void addLast(E element) {
+        add(size, element);
+    }
+
+    public E getFirst() {
+        checkNotEmpty();
+        return get(0);
+    }
+
+    public E getLast() {
+        checkNotEmpty();
+        return get(size - 1);
+    }
+
+    public E removeFirst() {
+        checkNotEmpty();
+        return remove(0);
+    }
+
+    public E removeLast() {
+        checkNotEmpty();
+        return remove(size - 1);
+    }
+
+    private int physicalIndex(int index) {
+        var physicalIndex = head + index;
+        return physicalIndex >= elements.length ? physicalIndex - elements.length : physicalIndex;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= elements.length) {
+            return;
+        }
+        var grown = new Object[Math.max(capacity, Math.max(MIN_CAPACITY, elements.length * 2))];
+        var firstPart = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, grown, 0, firstPart);
+        System.arraycopy(elements, 0, grown, firstPart, size - firstPart);
+        elements = grown;
+        head = 0;
+    }
+
+    private void checkNotEmpty() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", index, size));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal.model;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Model for rendering templates whose entries are created on first access only.
+ * <p>
+ * E.g. the response model is only built if a template actually refers to {@code response}. Not thread-safe: meant to be used for
+ * a single request.
+ */
+public final class TemplateModel extends AbstractMap<String, Object> {
+
+    private final Map<String, Supplier<?>> suppliers = new HashMap<>();
+    private final Map<String, Object> values = new LinkedHashMap<>();
+
+    /**
+     * Adds an entry that's created on first access.
+     *
+     * @param key      Name of the entry.
+     * @param supplier Creates the value of the entry.
+     * @return This model.
+     */
+    public TemplateModel with(String key, Supplier<?> supplier) {
+        suppliers.put(key, supplier);
+        return this;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (!values.containsKey(key)) {
+            var supplier = suppliers.remove(key);
+            if (supplier == null) {
+                return null;
+            }
+            values.put((String) key, supplier.get());
+        }
+        return values.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return values.containsKey(key) || suppliers.containsKey(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        suppliers.remove(key);
+        return values.put(key, value);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        Set.copyOf(suppliers.keySet()).forEach(this::get);
+        return values.entrySet();
+    }
+}
@@ -41,7 +41,7 @@ public class StubMappingLoadingExampleTest {
 
     private static WireMockServer wireMockServer;
     private static final Store<String, Object> store = new CaffeineStore();
-    private static final TransactionManager transactionManager = new TransactionManager(store);
+    private static final TransactionManager transactionManager = new TransactionManager();
     private static final ContextManager contextManager = new ContextManager(store, transactionManager);
 
 
@@ -28,7 +28,6 @@ import org.junit.jupiter.api.parallel.Execution;
 import org.wiremock.extensions.state.CaffeineStore;
 import org.wiremock.extensions.state.StateExtension;
 import org.wiremock.extensions.state.internal.ContextManager;
-import org.wiremock.extensions.state.internal.TransactionManager;
 
 import java.time.Duration;
 import java.util.UUID;
@@ -43,14 +42,14 @@ import static org.junit.jupiter.api.parallel.ExecutionMode.SAME_THREAD;
 public class AbstractTestBase {
     protected static final ObjectMapper mapper = new ObjectMapper();
     protected static final CaffeineStore store = new CaffeineStore();
-    protected static final TransactionManager transactionManager = new TransactionManager(store);
-    protected static final ContextManager contextManager = new ContextManager(store, transactionManager);
+    protected static final StateExtension stateExtension = new StateExtension(store);
+    protected static final ContextManager contextManager = stateExtension.getContextManager();
 
     @RegisterExtension
     public static WireMockExtension wm = WireMockExtension.newInstance()
         .options(
             wireMockConfig().dynamicPort().dynamicHttpsPort().templatingEnabled(true).globalTemplating(true)
-                .extensions(new StateExtension(store))
+                .extensions(stateExtension)
                 .notifier(new ConsoleNotifier(true))
         )
         .build();
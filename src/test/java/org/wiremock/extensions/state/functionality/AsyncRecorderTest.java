@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.internal.AsyncRecorder;
+import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.TransactionManager;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncRecorderTest {
+
+    private final AsyncRecorder recorder = new AsyncRecorder(2, 16);
+    private final TransactionManager transactionManager = new TransactionManager();
+    private final ContextManager contextManager = new ContextManager(new CaffeineStore(), transactionManager, null, null, recorder);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        recorder.close();
+    }
+
+    @Test
+    void test_changesAreAppliedInOrder_ok() {
+        var requestId = UUID.randomUUID().toString();
+        IntStream.range(0, 100).forEach(i ->
+            contextManager.submitChange(requestId, "ordered", () ->
+                contextManager.createOrUpdateContextList(requestId, "ordered", list -> list.addLast(Map.of("index", String.valueOf(i))))
+            )
+        );
+
+        assertThat(contextManager.getContext("ordered"))
+            .isPresent()
+            .hasValueSatisfying(it -> {
+                assertThat(it.getList()).hasSize(100);
+                IntStream.range(0, 100).forEach(i -> assertThat(it.getList().get(i)).containsEntry("index", String.valueOf(i)));
+            });
+    }
+
+    @Test
+    void test_readWaitsForPendingChanges_ok() {
+        var requestId = UUID.randomUUID().toString();
+        contextManager.submitChange(requestId, "blocked", () -> awaitRelease());
+        contextManager.submitChange(requestId, "blocked", () ->
+            contextManager.createOrUpdateContextState(requestId, "blocked", Map.of("key", "value"))
+        );
+
+        new Thread(() -> {
+            sleep(100);
+            release.countDown();
+        }).start();
+
+        assertThat(contextManager.getContext("blocked"))
+            .isPresent()
+            .hasValueSatisfying(it -> assertThat(it.getProperties()).containsEntry("key", "value"));
+        assertThat(contextManager.numUpdates("blocked")).isEqualTo(1);
+    }
+
+    @Test
+    void test_restoreWaitsForPendingChanges_ok() {
+        var requestId = UUID.randomUUID().toString();
+        contextManager.submitChange(requestId, "restored", () -> awaitRelease());
+        contextManager.submitChange(requestId, "restored", () ->
+            contextManager.createOrUpdateContextState(requestId, "restored", Map.of("key", "pending"))
+        );
+        var context = new Context("restored");
+        context.getProperties().put("key", "restored");
+
+        new Thread(() -> {
+            sleep(100);
+            release.countDown();
+        }).start();
+        contextManager.restoreContext(UUID.randomUUID().toString(), context);
+
+        assertThat(contextManager.getContext("restored"))
+            .hasValueSatisfying(it -> assertThat(it.getProperties()).containsEntry("key", "restored"));
+    }
+
+    @Test
+    void test_transactionIsRemovedAfterChange_ok() {
+        var requestId = UUID.randomUUID().toString();
+        contextManager.submitChange(requestId, "cleaned", () ->
+            contextManager.createOrUpdateContextState(requestId, "cleaned", Map.of("key", "value"))
+        );
+        transactionManager.deleteTransactions(requestId);
+
+        assertThat(contextManager.exists("cleaned")).isTrue();
+        assertThat(transactionManager.getContextNamesByRequestId(requestId)).isEmpty();
+    }
+
+    @Test
+    void test_changesOfCompletedRequestCountAsOneUpdate_ok() {
+        var requestId = UUID.randomUUID().toString();
+        contextManager.submitChange(requestId, "counted", () -> awaitRelease());
+        contextManager.submitChange(requestId, "counted", () ->
+            contextManager.createOrUpdateContextState(requestId, "counted", Map.of("key", "value"))
+        );
+        contextManager.submitChange(requestId, "counted", () ->
+            contextManager.createOrUpdateContextList(requestId, "counted", list -> list.addLast(Map.of("key", "value")))
+        );
+        transactionManager.deleteTransactions(requestId);
+        release.countDown();
+
+        assertThat(contextManager.numUpdates("counted")).isEqualTo(1);
+        assertThat(transactionManager.getContextNamesByRequestId(requestId)).isEmpty();
+    }
+
+    @Test
+    void test_closeAppliesPendingChanges_ok() {
+        var requestId = UUID.randomUUID().toString();
+        contextManager.submitChange(requestId, "closed", () ->
+            contextManager.createOrUpdateContextState(requestId, "closed", Map.of("key", "value"))
+        );
+        contextManager.stopAsyncRecording();
+
+        assertThat(contextManager.exists("closed")).isTrue();
+        assertThatThrownBy(() -> contextManager.submitChange(requestId, "closed", () -> {
+        })).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void test_failingChangeDoesNotStopRecording_ok() {
+        var requestId = UUID.randomUUID().toString();
+        contextManager.submitChange(requestId, "failing", () -> {
+            throw new IllegalStateException("expected");
+        });
+        contextManager.submitChange(requestId, "failing", () ->
+            contextManager.createOrUpdateContextState(requestId, "failing", Map.of("key", "value"))
+        );
+
+        assertThat(contextManager.exists("failing")).isTrue();
+    }
+
+    @Test
+    void test_errorDoesNotStopRecording_ok() {
+        var requestId = UUID.randomUUID().toString();
+        contextManager.submitChange(requestId, "error", () -> {
+            throw new StackOverflowError("expected");
+        });
+        contextManager.submitChange(requestId, "error", () ->
+            contextManager.createOrUpdateContextState(requestId, "error", Map.of("key", "value"))
+        );
+
+        assertThat(contextManager.exists("error")).isTrue();
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class CaffeineStoreTest {
+
+    private static final long MAXIMUM_WEIGHT = 64 * 1024;
+
+    private static Context createContext(String contextName, int listSize) {
+        var context = new Context(contextName);
+        context.getProperties().put("firstName", "John");
+        for (int i = 0; i < listSize; i++) {
+            context.getList().add(Map.of("id", "entry", "value", "abcdefghijklmnopqrst"));
+        }
+        return context;
+    }
+
+    private static long weightOf(Context context) {
+        var store = new CaffeineStore(0, 1024 * 1024 * 1024);
+        store.put("context:context", context);
+        return await()
+            .pollInterval(Duration.ofMillis(10))
+            .atMost(Duration.ofSeconds(5))
+            .until(() -> store.getWeightedSize().orElse(0L), it -> it > 0);
+    }
+
+    @Test
+    void test_boundedStoreEvicts_ok() {
+        var store = new CaffeineStore(0, MAXIMUM_WEIGHT);
+
+        for (int i = 0; i < 100; i++) {
+            store.put("context:" + i, createContext("context" + i, 10));
+        }
+
+        await()
+            .pollInterval(Duration.ofMillis(10))
+            .atMost(Duration.ofSeconds(5))
+            .untilAsserted(() -> {
+                assertThat(store.getEvictionCount()).isPositive();
+                assertThat(store.getEvictionWeight()).isPositive();
+                assertThat(store.getWeightedSize()).hasValueSatisfying(it -> assertThat(it).isPositive().isLessThanOrEqualTo(MAXIMUM_WEIGHT));
+            });
+        assertThat(store.getAllKeys().count()).isLessThan(100);
+    }
+
+    @Test
+    void test_unboundedStoreHasNoWeightedSize_ok() {
+        var store = new CaffeineStore();
+
+        store.put("context:context", createContext("context", 10));
+
+        assertThat(store.getWeightedSize()).isEmpty();
+        assertThat(store.getEvictionCount()).isZero();
+    }
+
+    @Test
+    void test_contextExpiresByItsOwnExpiration_ok() {
+        var store = new CaffeineStore();
+        var expiring = createContext("expiring", 0);
+        expiring.setExpirationSeconds(1L);
+
+        store.put("context:expiring", expiring);
+        store.put("context:default", createContext("default", 0));
+
+        await()
+            .pollInterval(Duration.ofMillis(100))
+            .atMost(Duration.ofSeconds(5))
+            .until(() -> store.get("context:expiring").isEmpty());
+        assertThat(store.get("context:default")).isPresent();
+    }
+
+    @Test
+    void test_readDoesNotExtendExpirationAfterWrite_ok() {
+        var store = new CaffeineStore(1);
+
+        store.put("context:context", createContext("context", 0));
+
+        // polling reads the context
+        await()
+            .pollInterval(Duration.ofMillis(100))
+            .atMost(Duration.ofSeconds(5))
+            .until(() -> store.get("context:context").isEmpty());
+    }
+
+    @Test
+    void test_readExtendsExpirationAfterAccess_ok() throws InterruptedException {
+        var store = new CaffeineStore(0, 0, true);
+        var context = createContext("context", 0);
+        context.setExpirationSeconds(1L);
+
+        store.put("context:context", context);
+        for (int i = 0; i < 10; i++) {
+            Thread.sleep(300);
+            assertThat(store.get("context:context")).isPresent();
+        }
+
+        await()
+            .pollDelay(Duration.ofMillis(1500))
+            .atMost(Duration.ofSeconds(5))
+            .until(() -> store.get("context:context").isEmpty());
+    }
+
+    @Test
+    void test_weightScalesWithListLength_ok() {
+        var emptyWeight = weightOf(createContext("context", 0));
+        var shortWeight = weightOf(createContext("context", 10));
+        var longWeight = weightOf(createContext("context", 1000));
+
+        assertThat(shortWeight).isGreaterThan(emptyWeight);
+        assertThat(longWeight - emptyWeight).isEqualTo(100 * (shortWeight - emptyWeight));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.internal.model.CompactMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompactMapTest {
+
+    @Test
+    void test_behavesLikeMap_ok() {
+        var source = Map.of("id", "1", "firstName", "John", "lastName", "Doe");
+
+        var map = CompactMap.of(source);
+
+        assertThat(map).isEqualTo(source);
+        assertThat(source).isEqualTo(map);
+        assertThat(map.hashCode()).isEqualTo(source.hashCode());
+        assertThat(map.get("firstName")).isEqualTo("John");
+        assertThat(map.get("unknown")).isNull();
+        assertThat(map.getOrDefault("unknown", "default")).isEqualTo("default");
+        assertThat(map.containsKey("id")).isTrue();
+        assertThat(map.keySet()).containsExactly("firstName", "id", "lastName");
+    }
+
+    @Test
+    void test_manyKeys_ok() {
+        var source = IntStream.range(0, 50).boxed().collect(Collectors.toMap(it -> "key" + it, it -> "value" + it));
+
+        var map = CompactMap.of(source);
+
+        assertThat(map).isEqualTo(source);
+        assertThat(map.get("key42")).isEqualTo("value42");
+        assertThat(map.containsKey("key50")).isFalse();
+    }
+
+    @Test
+    void test_nullValues_ok() {
+        var source = new HashMap<String, String>();
+        source.put("id", null);
+
+        var map = CompactMap.of(source);
+
+        assertThat(map.containsKey("id")).isTrue();
+        assertThat(map.get("id")).isNull();
+    }
+
+    @Test
+    void test_isImmutable_ok() {
+        var map = CompactMap.of(Map.of("id", "1"));
+
+        assertThatThrownBy(() -> map.put("id", "2")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> map.entrySet().clear()).isInstanceOf(UnsupportedOperationException.class);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.TransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContextDeletionTest {
+
+    private final CaffeineStore store = new CaffeineStore();
+    private final TransactionManager transactionManager = new TransactionManager();
+    private final ContextManager contextManager = new ContextManager(store, transactionManager);
+
+    @Test
+    void test_deleteContextsMatchingLargeIndex_ok() {
+        var requestId = UUID.randomUUID().toString();
+        IntStream.range(0, 20_000).forEach(i ->
+            contextManager.createOrUpdateContextState(requestId, (i % 2 == 0 ? "even-" : "odd-") + i, Map.of("key", "value"))
+        );
+
+        contextManager.deleteContextsMatching(it -> it.startsWith("even-"));
+
+        assertThat(contextManager.getContextNames().collect(Collectors.toList()))
+            .hasSize(10_000)
+            .allMatch(it -> it.startsWith("odd-"));
+        assertThat(contextManager.exists("even-0")).isFalse();
+        assertThat(contextManager.exists("odd-1")).isTrue();
+    }
+
+    @Test
+    void test_deleteContextsIgnoresUnknown_ok() {
+        var requestId = UUID.randomUUID().toString();
+        contextManager.createOrUpdateContextState(requestId, "one", Map.of("key", "value"));
+        contextManager.createOrUpdateContextState(requestId, "two", Map.of("key", "value"));
+
+        contextManager.deleteContexts(List.of("one", "unknown"));
+
+        assertThat(contextManager.getContextNames()).containsExactly("two");
+    }
+
+    @Test
+    void test_deleteAllContextsKeepsNoTransactions_ok() {
+        var requestId = UUID.randomUUID().toString();
+        IntStream.range(0, 100).forEach(i -> contextManager.createOrUpdateContextState(requestId, "context" + i, Map.of("key", "value")));
+        transactionManager.deleteTransactions(requestId);
+
+        var deletionRequestId = UUID.randomUUID().toString();
+        contextManager.deleteAllContexts(deletionRequestId);
+
+        assertThat(contextManager.getContextNames()).isEmpty();
+        assertThat(store.getAllKeys()).isEmpty();
+        assertThat(transactionManager.getContextNamesByRequestId(deletionRequestId)).isEmpty();
+    }
+
+    @Test
+    void test_deleteContextsOfOtherManager_ok() {
+        var other = new ContextManager(store, new TransactionManager());
+        other.createOrUpdateContextState(UUID.randomUUID().toString(), "other", Map.of("key", "value"));
+
+        contextManager.deleteContexts(List.of("other"));
+
+        assertThat(other.exists("other")).isFalse();
+    }
+}
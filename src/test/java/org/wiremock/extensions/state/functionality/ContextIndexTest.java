@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.TransactionManager;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContextIndexTest {
+
+    private final CaffeineStore store = new CaffeineStore();
+    private final ContextManager contextManager = new ContextManager(store, new TransactionManager());
+
+    private void createContexts(String prefix, int count) {
+        var requestId = UUID.randomUUID().toString();
+        IntStream.range(0, count).forEach(i -> contextManager.createOrUpdateContextState(requestId, prefix + i, Map.of("key", "value")));
+    }
+
+    private void removeFromStore(String prefix, int count) {
+        IntStream.range(0, count).forEach(i -> store.remove(contextManager.createContextKey(prefix + i)));
+    }
+
+    @Test
+    void test_existingContextsAreIndexed_ok() {
+        createContexts("existing-", 3);
+
+        var other = new ContextManager(store, new TransactionManager());
+
+        assertThat(other.getContextNames()).containsExactly("existing-0", "existing-1", "existing-2");
+    }
+
+    @Test
+    void test_contextsOfOtherManagersAreIndexed_ok() {
+        var other = new ContextManager(store, new TransactionManager());
+        other.createOrUpdateContextState(UUID.randomUUID().toString(), "other", Map.of("key", "value"));
+        createContexts("own-", 1);
+
+        assertThat(contextManager.getContextNames()).containsExactly("other", "own-0");
+    }
+
+    @Test
+    void test_contextNamesStartingWith_ok() {
+        createContexts("a-", 3);
+        createContexts("ab-", 2);
+        createContexts("b-", 2);
+
+        assertThat(contextManager.getContextNamesStartingWith("a-")).containsExactly("a-0", "a-1", "a-2");
+        assertThat(contextManager.getContextNamesStartingWith("a")).hasSize(5);
+        assertThat(contextManager.getContextNamesStartingWith("c")).isEmpty();
+    }
+
+    @Test
+    void test_missingContextIsPrunedOnLookup_ok() {
+        createContexts("context-", 2);
+        removeFromStore("context-", 1);
+
+        assertThat(contextManager.exists("context-0")).isFalse();
+
+        assertThat(contextManager.getContextNames()).containsExactly("context-1");
+    }
+
+    @Test
+    void test_expiredContextsArePrunedOnCreation_ok() {
+        createContexts("old-", 2000);
+        removeFromStore("old-", 2000);
+
+        createContexts("new-", 2000);
+
+        assertThat(contextManager.getContextNames().collect(Collectors.toList()))
+            .hasSize(2000)
+            .allMatch(it -> it.startsWith("new-"));
+    }
+}
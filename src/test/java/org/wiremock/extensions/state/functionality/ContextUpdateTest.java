@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.TransactionManager;
+import org.wiremock.extensions.state.internal.model.ContextUpdate;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContextUpdateTest {
+
+    private final AtomicInteger puts = new AtomicInteger();
+    private final CaffeineStore store = new CaffeineStore() {
+        @Override
+        public void put(String key, Object content) {
+            if (key.startsWith("context:")) {
+                puts.incrementAndGet();
+            }
+            super.put(key, content);
+        }
+    };
+    private final ContextManager contextManager = new ContextManager(store, new TransactionManager());
+
+    @Test
+    void test_batchIsWrittenOnce_ok() {
+        var update = new ContextUpdate()
+            .withProperties(Map.of("status", "active"))
+            .withListChange(list -> list.addLast(Map.of("entry", "last")))
+            .withListChange(list -> list.addFirst(Map.of("entry", "first")))
+            .withExpirationSeconds(30);
+
+        contextManager.updateContext(UUID.randomUUID().toString(), "batch", update);
+
+        assertThat(puts).hasValue(1);
+        assertThat(contextManager.getContext("batch"))
+            .isPresent()
+            .hasValueSatisfying(it -> {
+                assertThat(it.getProperties()).containsExactlyEntriesOf(Map.of("status", "active"));
+                assertThat(it.getList()).containsExactly(Map.of("entry", "first"), Map.of("entry", "last"));
+                assertThat(it.getExpirationSeconds()).isEqualTo(30L);
+                assertThat(it.getUpdateCount()).isEqualTo(1);
+            });
+    }
+
+    @Test
+    void test_expirationOnlyIsNoUpdate_ok() {
+        contextManager.updateContext(UUID.randomUUID().toString(), "expiration", new ContextUpdate().withExpirationSeconds(30));
+
+        assertThat(contextManager.numUpdates("expiration")).isZero();
+        assertThat(contextManager.exists("expiration")).isTrue();
+    }
+
+    @Test
+    void test_emptyBatchIsIgnored_ok() {
+        contextManager.updateContext(UUID.randomUUID().toString(), "empty", new ContextUpdate());
+
+        assertThat(puts).hasValue(0);
+        assertThat(contextManager.exists("empty")).isFalse();
+    }
+}
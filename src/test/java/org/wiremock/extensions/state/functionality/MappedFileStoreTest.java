@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.wiremock.extensions.state.MappedFileStore;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedFileStoreTest {
+
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private MappedFileStore store;
+
+    private MappedFileStore open() {
+        if (store != null) {
+            store.close();
+        }
+        store = new MappedFileStore(directory, MappedFileStore.SyncPolicy.NEVER, SEGMENT_SIZE);
+        return store;
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    private static Context createContext(String contextName, int listSize) {
+        var context = new Context(contextName);
+        context.getProperties().put("firstName", "John");
+        context.getProperties().put("lastName", "Doe äöü");
+        for (int i = 0; i < listSize; i++) {
+            context.getList().add(Map.of("id", String.valueOf(i)));
+        }
+        context.incUpdateCount();
+        return context;
+    }
+
+    private void assertStoredContext(String key, Context expected) {
+        assertThat(store.get(key))
+            .isPresent()
+            .hasValueSatisfying(it -> {
+                var context = (Context) it;
+                assertThat(context.getContextName()).isEqualTo(expected.getContextName());
+                assertThat(context.getProperties()).isEqualTo(expected.getProperties());
+                assertThat(context.getList()).isEqualTo(expected.getList());
+                assertThat(context.getUpdateCount()).isEqualTo(expected.getUpdateCount());
+            });
+    }
+
+    @Test
+    void test_contextSurvivesRestart_ok() {
+        var context = createContext("contextName", 10);
+        open().put("context:contextName", context);
+
+        open();
+
+        assertStoredContext("context:contextName", context);
+    }
+
+    @Test
+    void test_latestVersionSurvivesRestart_ok() {
+        open().put("context:contextName", createContext("contextName", 1));
+        var context = createContext("contextName", 2);
+        store.put("context:contextName", context);
+
+        open();
+
+        assertStoredContext("context:contextName", context);
+    }
+
+    @Test
+    void test_removeSurvivesRestart_ok() {
+        open().put("context:first", createContext("first", 1));
+        store.put("context:second", createContext("second", 1));
+        store.remove("context:first");
+
+        open();
+
+        assertThat(store.get("context:first")).isEmpty();
+        assertThat(store.getAllKeys().collect(Collectors.toSet())).isEqualTo(Set.of("context:second"));
+    }
+
+    @Test
+    void test_clearSurvivesRestart_ok() {
+        open().put("context:first", createContext("first", 1));
+        store.clear();
+        var context = createContext("second", 1);
+        store.put("context:second", context);
+
+        open();
+
+        assertThat(store.get("context:first")).isEmpty();
+        assertStoredContext("context:second", context);
+    }
+
+    @Test
+    void test_nonContextValuesAreNotPersisted_ok() {
+        open().put("index:contexts", Set.of("contextName"));
+
+        assertThat(store.get("index:contexts")).hasValue(Set.of("contextName"));
+
+        open();
+
+        assertThat(store.get("index:contexts")).isEmpty();
+    }
+
+    @Test
+    void test_contextsSpanningSegments_ok() {
+        open();
+        for (int i = 0; i < 100; i++) {
+            store.put("context:" + i, createContext(String.valueOf(i), 50));
+        }
+        var largeContext = createContext("large", 10_000);
+        store.put("context:large", largeContext);
+
+        open();
+
+        assertThat(store.getAllKeys()).hasSize(101);
+        assertStoredContext("context:99", createContext("99", 50));
+        assertStoredContext("context:large", largeContext);
+    }
+
+    @Test
+    void test_compactionKeepsContexts_ok() throws IOException {
+        open();
+        for (int i = 0; i < 1000; i++) {
+            store.put("context:contextName", createContext("contextName", 20));
+            assertThat(segmentFiles()).hasSizeLessThanOrEqualTo(2);
+        }
+        var context = createContext("contextName", 5);
+        store.put("context:contextName", context);
+        assertStoredContext("context:contextName", context);
+
+        open();
+
+        assertStoredContext("context:contextName", context);
+    }
+
+    @Test
+    void test_compactionOnRemove_ok() throws IOException {
+        open();
+        for (int i = 0; i < 1000; i++) {
+            store.put("context:" + i, createContext(String.valueOf(i), 20));
+        }
+        var context = createContext("kept", 5);
+        store.put("context:kept", context);
+        var segmentsBefore = segmentFiles().length;
+
+        for (int i = 0; i < 1000; i++) {
+            store.remove("context:" + i);
+        }
+
+        assertThat(segmentFiles().length).isLessThan(segmentsBefore);
+        assertStoredContext("context:kept", context);
+    }
+
+    @Test
+    void test_truncatedRecordIsIgnored_ok() throws IOException {
+        var context = createContext("contextName", 1);
+        open().put("context:contextName", context);
+        store.put("context:other", createContext("other", 1));
+        store.close();
+        var segment = segmentFiles()[0];
+        var bytes = Files.readAllBytes(segment);
+        // corrupt the last byte of the second record
+        int firstLength = 8 + ByteBuffer.wrap(bytes).getInt(0);
+        int secondLength = 8 + ByteBuffer.wrap(bytes).getInt(firstLength);
+        bytes[firstLength + secondLength - 1] ^= 0x7f;
+        Files.write(segment, bytes);
+        store = null;
+
+        open();
+
+        assertStoredContext("context:contextName", context);
+        assertThat(store.get("context:other")).isEmpty();
+    }
+
+    private Path[] segmentFiles() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.sorted().toArray(Path[]::new);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.OffHeapStore;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OffHeapStoreTest {
+
+    private OffHeapStore store;
+
+    @BeforeEach
+    void setup() {
+        store = new OffHeapStore();
+    }
+
+    private static Context createContext(String contextName, int listSize) {
+        var context = new Context(contextName);
+        context.getProperties().put("firstName", "John");
+        context.getProperties().put("lastName", "Doe äöü");
+        for (int i = 0; i < listSize; i++) {
+            context.getList().add(Map.of("id", String.valueOf(i), "value", RandomStringUtils.randomAlphabetic(20)));
+        }
+        context.incUpdateCount();
+        context.setExpirationSeconds(30L);
+        return context;
+    }
+
+    private void assertStoredContext(String key, Context expected) {
+        assertThat(store.get(key))
+            .isPresent()
+            .hasValueSatisfying(it -> {
+                assertThat(it).isInstanceOf(Context.class);
+                var context = (Context) it;
+                assertThat(context.getContextName()).isEqualTo(expected.getContextName());
+                assertThat(context.getProperties()).isEqualTo(expected.getProperties());
+                assertThat(context.getList()).isEqualTo(expected.getList());
+                assertThat(context.getUpdateCount()).isEqualTo(expected.getUpdateCount());
+                assertThat(context.getExpirationSeconds()).isEqualTo(expected.getExpirationSeconds());
+            });
+    }
+
+    @Test
+    void test_contextIsStoredAndRead_ok() {
+        var context = createContext("contextName", 10);
+
+        store.put("context:contextName", context);
+
+        assertStoredContext("context:contextName", context);
+    }
+
+    @Test
+    void test_largeContextIsStoredAndRead_ok() {
+        var context = createContext("contextName", 50_000);
+
+        store.put("context:contextName", context);
+
+        assertStoredContext("context:contextName", context);
+    }
+
+    @Test
+    void test_contextIsReplaced_ok() {
+        store.put("context:contextName", createContext("contextName", 10));
+        var replacement = createContext("contextName", 100);
+
+        store.put("context:contextName", replacement);
+
+        assertStoredContext("context:contextName", replacement);
+    }
+
+    @Test
+    void test_otherValuesAreStoredOnHeap_ok() {
+        var value = Set.of("one", "two");
+
+        store.put("index", value);
+
+        assertThat(store.get("index")).hasValue(value);
+    }
+
+    @Test
+    void test_removedContextIsGone_ok() {
+        store.put("context:contextName", createContext("contextName", 10));
+
+        store.remove("context:contextName");
+
+        assertThat(store.get("context:contextName")).isEmpty();
+        assertThat(store.getAllKeys()).isEmpty();
+    }
+
+    @Test
+    void test_freedMemoryIsReused_ok() {
+        store.put("context:contextName", createContext("contextName", 10));
+        var allocatedBytes = store.getAllocatedBytes();
+
+        for (int i = 0; i < 1000; i++) {
+            store.put("context:contextName", createContext("contextName", 10));
+        }
+
+        assertThat(store.getAllocatedBytes()).isEqualTo(allocatedBytes);
+    }
+
+    @Test
+    void test_clearRemovesAll_ok() {
+        store.put("context:one", createContext("one", 10));
+        store.put("index", Set.of("one"));
+
+        store.clear();
+
+        assertThat(store.getAllKeys()).isEmpty();
+        assertThat(store.getAllocatedBytes()).isZero();
+    }
+
+    @Test
+    void test_concurrentClearDoesNotShareBlocks_ok() throws InterruptedException {
+        var executor = Executors.newFixedThreadPool(4);
+        var failures = new ConcurrentLinkedQueue<Throwable>();
+        for (int thread = 0; thread < 3; thread++) {
+            var key = "context:thread" + thread;
+            executor.submit(() -> {
+                try {
+                    for (int i = 0; i < 2000; i++) {
+                        store.put(key, createContext("thread", 1));
+                        store.remove(key);
+                    }
+                } catch (Throwable ex) {
+                    failures.add(ex);
+                }
+            });
+        }
+        executor.submit(() -> {
+            for (int i = 0; i < 200; i++) {
+                store.clear();
+            }
+        });
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(failures).isEmpty();
+
+        var contexts = new HashMap<String, Context>();
+        for (int i = 0; i < 100; i++) {
+            var context = createContext("context" + i, 1);
+            contexts.put("context:" + i, context);
+            store.put("context:" + i, context);
+        }
+        contexts.forEach(this::assertStoredContext);
+    }
+
+    @Test
+    void test_maximumSizeExceeded_fail() {
+        var boundedStore = new OffHeapStore(1024);
+
+        assertThatThrownBy(() -> boundedStore.put("context:contextName", createContext("contextName", 10)))
+            .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -319,6 +319,155 @@ class RecordStateEventListenerTest extends AbstractTestBase {
         }
     }
 
+    @Nested
+    public class Expiration {
+
+        @BeforeEach
+        void setup() {
+            wm.stubFor(
+                WireMock.post(urlPathMatching("/expiration/[^/]+"))
+                    .willReturn(WireMock.ok())
+                    .withServeEventListener(
+                        "recordState",
+                        Parameters.from(
+                            Map.of(
+                                "context", "{{request.pathSegments.[1]}}",
+                                "state", Map.of("stateValueOne", "{{jsonPath request.body '$.contextValueOne'}}"),
+                                "expiration", "{{jsonPath request.body '$.contextValueTwo'}}"
+                            )
+                        )
+                    )
+            );
+            wm.stubFor(
+                WireMock.post(urlPathMatching("/expirationOnly/[^/]+"))
+                    .willReturn(WireMock.ok())
+                    .withServeEventListener(
+                        "recordState",
+                        Parameters.from(
+                            Map.of(
+                                "context", "{{request.pathSegments.[1]}}",
+                                "expiration", "{{jsonPath request.body '$.contextValueTwo'}}"
+                            )
+                        )
+                    )
+            );
+        }
+
+        @Test
+        void test_expirationIsWritten_ok() {
+            var context = RandomStringUtils.randomAlphabetic(5);
+
+            postRequest("expiration", context, "30");
+
+            assertThat(contextManager.getContextCopy(context))
+                .isPresent()
+                .hasValueSatisfying(it -> assertThat(it.getExpirationSeconds()).isEqualTo(30L));
+        }
+
+        @Test
+        void test_expirationDoesNotCountAsUpdate_ok() {
+            var context = RandomStringUtils.randomAlphabetic(5);
+
+            postRequest("expirationOnly", context, "30");
+
+            assertThat(contextManager.getContext(context))
+                .isPresent()
+                .hasValueSatisfying(it -> {
+                    assertThat(it.getExpirationSeconds()).isEqualTo(30L);
+                    assertThat(it.getUpdateCount()).isZero();
+                });
+        }
+
+        @Test
+        void test_unparsableExpirationIsIgnored_ok() {
+            var context = RandomStringUtils.randomAlphabetic(5);
+
+            postRequest("expiration", context, "invalid");
+
+            assertThat(contextManager.getContextCopy(context))
+                .isPresent()
+                .hasValueSatisfying(it -> assertThat(it.getExpirationSeconds()).isNull());
+        }
+    }
+
+    @Nested
+    public class Extract {
+
+        @BeforeEach
+        void setup() {
+            wm.stubFor(
+                WireMock.post(urlPathMatching("/extract/[^/]+"))
+                    .willReturn(
+                        WireMock.ok()
+                            .withHeader("content-type", "application/json")
+                            .withBody("{\"id\": \"abc\", \"user\": {\"name\": \"John\", \"tags\": [\"a\", \"b\"]}, \"items\": [{\"v\": 1}, {\"v\": 2}], \"nothing\": null}")
+                    )
+                    .withServeEventListener(
+                        "recordState",
+                        Parameters.from(
+                            Map.of(
+                                "context", "{{request.pathSegments.[1]}}",
+                                "extract", Map.of(
+                                    "id", "$.id",
+                                    "name", "$.user.name",
+                                    "tag", "$.user['tags'][1]",
+                                    "second", "$.items[1].v",
+                                    "user", "$.user",
+                                    "nothing", "$.nothing",
+                                    "missing", "$.missing.value"
+                                ),
+                                "state", Map.of(
+                                    "id", "{{extracted.id}}",
+                                    "name", "{{extracted.name}}",
+                                    "tag", "{{extracted.tag}}",
+                                    "second", "{{extracted.second}}",
+                                    "user", "{{{extracted.user}}}",
+                                    "nothing", "{{extracted.nothing}}",
+                                    "missing", "{{extracted.missing}}"
+                                )
+                            )
+                        )
+                    )
+            );
+        }
+
+        @Test
+        void test_valuesAreExtracted_ok() {
+            var context = RandomStringUtils.randomAlphabetic(5);
+
+            postRequest("extract", context, null);
+
+            assertThat(contextManager.getContext(context))
+                .isPresent()
+                .hasValueSatisfying(it -> assertThat(it.getProperties())
+                    .containsEntry("id", "abc")
+                    .containsEntry("name", "John")
+                    .containsEntry("tag", "b")
+                    .containsEntry("second", "2")
+                    .containsEntry("user", "{\"name\":\"John\",\"tags\":[\"a\",\"b\"]}")
+                    .containsEntry("nothing", "")
+                    .containsEntry("missing", "")
+                );
+        }
+    }
+
+    @Nested
+    public class TemplateCaching {
+
+        @Test
+        void test_templatesAreCompiledOnce_ok() {
+            var templateCache = stateExtension.getTemplateCache();
+            postRequest("state", RandomStringUtils.randomAlphabetic(5), "one");
+            var misses = templateCache.getMissCount();
+            var hits = templateCache.getHitCount();
+
+            postRequest("state", RandomStringUtils.randomAlphabetic(5), "two");
+
+            assertThat(templateCache.getMissCount()).isEqualTo(misses);
+            assertThat(templateCache.getHitCount()).isGreaterThan(hits);
+        }
+    }
+
     @Nested
     public class NumUpdates {
         @Test
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.internal.model.RingBufferList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RingBufferListTest {
+
+    @Test
+    void test_behavesLikeList_ok() {
+        var random = new Random(42);
+        var list = new RingBufferList<Integer>();
+        var expected = new ArrayList<Integer>();
+        for (int i = 0; i < 10_000; i++) {
+            var operation = random.nextInt(6);
+            if (operation == 0) {
+                list.addFirst(i);
+                expected.add(0, i);
+            } else if (operation == 1) {
+                list.addLast(i);
+                expected.add(i);
+            } else if (operation == 2 && !expected.isEmpty()) {
+                assertThat(list.removeFirst()).isEqualTo(expected.remove(0));
+            } else if (operation == 3 && !expected.isEmpty()) {
+                assertThat(list.removeLast()).isEqualTo(expected.remove(expected.size() - 1));
+            } else if (operation == 4) {
+                var index = random.nextInt(expected.size() + 1);
+                list.add(index, i);
+                expected.add(index, i);
+            } else if (operation == 5 && !expected.isEmpty()) {
+                var index = random.nextInt(expected.size());
+                assertThat(list.remove(index)).isEqualTo(expected.remove(index));
+            }
+            assertThat(list.size()).isEqualTo(expected.size());
+        }
+        assertThat(list).containsExactlyElementsOf(expected);
+        assertThat(new RingBufferList<>(list)).isEqualTo(expected);
+    }
+
+    @Test
+    void test_addAll_ok() {
+        for (var count : List.of(5, 9, 17, 100)) {
+            var expected = new ArrayList<Integer>();
+            for (int i = 0; i < count; i++) {
+                expected.add(i);
+            }
+
+            var list = new RingBufferList<Integer>();
+            list.addAll(expected);
+            assertThat(list).containsExactlyElementsOf(expected);
+
+            var copy = new RingBufferList<Integer>();
+            copy.addAll(list);
+            copy.addLast(count);
+            copy.addFirst(-1);
+            assertThat(copy).hasSize(count + 2).startsWith(-1, 0).endsWith(count - 1, count);
+        }
+    }
+
+    @Test
+    void test_addAllWrapped_ok() {
+        var list = new RingBufferList<Integer>();
+        var expected = new ArrayList<Integer>();
+        for (int i = 0; i < 6; i++) {
+            list.addLast(i);
+            expected.add(i);
+        }
+        for (int i = 0; i < 4; i++) {
+            list.removeFirst();
+            expected.remove(0);
+        }
+        var added = List.of(10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 26, 27);
+        list.addAll(added.subList(0, 5));
+        expected.addAll(added.subList(0, 5));
+        assertThat(list).containsExactlyElementsOf(expected);
+        list.addAll(added.subList(5, added.size()));
+        expected.addAll(added.subList(5, added.size()));
+        assertThat(list).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void test_iteratorRemove_ok() {
+        var list = new RingBufferList<>(List.of(1, 2, 3, 4, 5));
+        list.addFirst(0);
+
+        list.removeIf(it -> it % 2 == 0);
+
+        assertThat(list).containsExactly(1, 3, 5);
+        assertThat(list.getFirst()).isEqualTo(1);
+        assertThat(list.getLast()).isEqualTo(5);
+    }
+
+    @Test
+    void test_emptyList_fails() {
+        var list = new RingBufferList<Integer>();
+
+        assertThatThrownBy(list::getFirst).isInstanceOf(NoSuchElementException.class);
+        assertThatThrownBy(list::removeLast).isInstanceOf(NoSuchElementException.class);
+        assertThatThrownBy(() -> list.get(0)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+}
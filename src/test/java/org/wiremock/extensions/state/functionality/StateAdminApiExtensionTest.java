@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.http.HttpStatus;
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+
+class StateAdminApiExtensionTest extends AbstractTestBase {
+
+    private URI snapshotUri() {
+        return assertDoesNotThrow(() -> new URI(String.format("%s/__admin/state/snapshot", wm.getRuntimeInfo().getHttpBaseUrl())));
+    }
+
+    private void createContext(String contextName, Map<String, String> properties, List<Map<String, String>> list) {
+        var requestId = UUID.randomUUID().toString();
+        contextManager.createOrUpdateContextState(requestId, contextName, properties);
+        contextManager.createOrUpdateContextList(requestId, contextName, it -> it.addAll(list));
+    }
+
+    private List<JsonNode> parseSnapshot(String snapshot) {
+        return snapshot.lines()
+            .map(line -> assertDoesNotThrow(() -> mapper.readTree(line)))
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    void test_snapshotContainsAllContexts_ok() {
+        createContext("first", Map.of("firstName", "John"), List.of(Map.of("id", "1"), Map.of("id", "2")));
+        createContext("second", Map.of("lastName", "Doe"), List.of());
+
+        var snapshot = given()
+            .get(snapshotUri())
+            .then()
+            .statusCode(HttpStatus.SC_OK)
+            .contentType("application/x-ndjson")
+            .extract().body().asString();
+
+        var contexts = parseSnapshot(snapshot);
+        assertThat(contexts).hasSize(2);
+        assertThat(contexts.get(0).get("contextName").asText()).isEqualTo("first");
+        assertThat(contexts.get(0).get("updateCount").asLong()).isEqualTo(2);
+        assertThat(contexts.get(0).get("properties").get("firstName").asText()).isEqualTo("John");
+        assertThat(contexts.get(0).get("list")).hasSize(2);
+        assertThat(contexts.get(1).get("contextName").asText()).isEqualTo("second");
+        assertThat(contexts.get(1).get("properties").get("lastName").asText()).isEqualTo("Doe");
+    }
+
+    @Test
+    void test_emptySnapshot_ok() {
+        var snapshot = given()
+            .get(snapshotUri())
+            .then()
+            .statusCode(HttpStatus.SC_OK)
+            .extract().body().asString();
+
+        assertThat(snapshot).isEmpty();
+    }
+
+    @Test
+    void test_restoreSnapshot_ok() {
+        createContext("first", Map.of("firstName", "John"), List.of(Map.of("id", "1")));
+        createContext("untouched", Map.of("firstName", "Jane"), List.of());
+        var snapshot = given().get(snapshotUri()).then().extract().body().asString();
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), "first", Map.of("firstName", "Jim"));
+        var restored = "{\"contextName\":\"restored\",\"updateCount\":5,\"properties\":{\"a\":\"b\"},\"list\":[{\"id\":\"3\"}]}\n";
+        var firstOnly = snapshot.lines().filter(it -> it.contains("\"first\"")).findFirst().orElseThrow();
+
+        given()
+            .body(firstOnly + "\n" + restored)
+            .post(snapshotUri())
+            .then()
+            .statusCode(HttpStatus.SC_OK);
+
+        assertThat(contextManager.getContextNames()).containsExactly("first", "restored", "untouched");
+        assertThat(contextManager.getContext("first")).isPresent().hasValueSatisfying(it -> {
+            assertThat(it.getProperties()).containsEntry("firstName", "John");
+            assertThat(it.getList()).containsExactly(Map.of("id", "1"));
+            assertThat(it.getUpdateCount()).isEqualTo(2);
+        });
+        assertThat(contextManager.getContext("restored")).isPresent().hasValueSatisfying(it -> {
+            assertThat(it.getProperties()).containsEntry("a", "b");
+            assertThat(it.getList()).containsExactly(Map.of("id", "3"));
+            assertThat(it.getUpdateCount()).isEqualTo(5);
+        });
+        assertThat(contextManager.getContext("untouched")).map(Context::getProperties).hasValue(Map.of("firstName", "Jane"));
+    }
+
+    @Test
+    void test_restorePartiallyInvalidSnapshot_changesNothing() {
+        createContext("first", Map.of("firstName", "John"), List.of());
+
+        given()
+            .body("{\"contextName\":\"first\",\"properties\":{\"firstName\":\"Jim\"}}\n{\"properties\":{}}")
+            .post(snapshotUri())
+            .then()
+            .statusCode(HttpStatus.SC_BAD_REQUEST);
+
+        assertThat(contextManager.getContext("first")).map(Context::getProperties).hasValue(Map.of("firstName", "John"));
+    }
+
+    @Test
+    void test_restoreInvalidSnapshot_fails() {
+        given()
+            .body("{\"properties\":{}}")
+            .post(snapshotUri())
+            .then()
+            .statusCode(HttpStatus.SC_BAD_REQUEST);
+
+        assertThat(contextManager.getContextNames()).isEmpty();
+    }
+}
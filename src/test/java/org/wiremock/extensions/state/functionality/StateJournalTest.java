@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.StateJournal;
+import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.TransactionManager;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StateJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private StateJournal journal;
+
+    private StateJournal open(boolean sync) {
+        if (journal != null) {
+            journal.close();
+        }
+        journal = new StateJournal(directory.resolve("state.journal"), sync);
+        return journal;
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.close();
+    }
+
+    private List<Context> replay() {
+        var contexts = new ArrayList<Context>();
+        journal.replay(contexts::add);
+        return contexts;
+    }
+
+    private ContextManager contextManager() {
+        return new ContextManager(new CaffeineStore(), new TransactionManager(), journal);
+    }
+
+    @Test
+    void test_changesAreReplayed_ok() {
+        open(true);
+        var contextManager = contextManager();
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), "first", Map.of("firstName", "John"));
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), "first", Map.of("lastName", "Doe"));
+        contextManager.createOrUpdateContextList(UUID.randomUUID().toString(), "second", list -> list.add(Map.of("id", "1")));
+
+        open(true);
+
+        var contexts = replay();
+        assertThat(contexts).hasSize(2);
+        assertThat(contexts.get(0).getContextName()).isEqualTo("first");
+        assertThat(contexts.get(0).getProperties()).isEqualTo(Map.of("firstName", "John", "lastName", "Doe"));
+        assertThat(contexts.get(0).getUpdateCount()).isEqualTo(2);
+        assertThat(contexts.get(1).getContextName()).isEqualTo("second");
+        assertThat(contexts.get(1).getList()).containsExactly(Map.of("id", "1"));
+    }
+
+    @Test
+    void test_deletionsAreReplayed_ok() {
+        open(true);
+        var contextManager = contextManager();
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), "first", Map.of("firstName", "John"));
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), "second", Map.of("firstName", "Jane"));
+        contextManager.deleteContext(UUID.randomUUID().toString(), "first");
+
+        open(true);
+
+        assertThat(replay()).extracting(Context::getContextName).containsExactly("second");
+    }
+
+    @Test
+    void test_bulkDeletionsAreReplayed_ok() {
+        open(true);
+        var contextManager = contextManager();
+        for (int i = 0; i < 100; i++) {
+            contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), "context" + i, Map.of("id", String.valueOf(i)));
+        }
+        contextManager.deleteContextsMatching(it -> !it.equals("context0"));
+
+        open(true);
+
+        assertThat(replay()).extracting(Context::getContextName).containsExactly("context0");
+    }
+
+    @Test
+    void test_asyncChangesAreWrittenOnClose_ok() {
+        open(false);
+        var contextManager = contextManager();
+        for (int i = 0; i < 1000; i++) {
+            contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), "context" + i, Map.of("id", String.valueOf(i)));
+        }
+
+        open(false);
+
+        assertThat(replay()).hasSize(1000);
+    }
+
+    @Test
+    void test_concurrentChangesAreCommitted_ok() throws InterruptedException {
+        open(true);
+        var contextManager = contextManager();
+        var executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 200; i++) {
+            var contextName = "context" + (i % 20);
+            executor.submit(() -> contextManager.createOrUpdateContextList(UUID.randomUUID().toString(), contextName, list -> list.add(Map.of("id", "1"))));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        open(true);
+
+        var contexts = replay();
+        assertThat(contexts).hasSize(20);
+        assertThat(contexts).allSatisfy(it -> assertThat(it.getList()).hasSize(10));
+    }
+
+    @Test
+    void test_journalIsCompactedOnOpen_ok() throws IOException {
+        open(true);
+        var contextManager = contextManager();
+        for (int i = 0; i < 100; i++) {
+            contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), "context", Map.of("id", String.valueOf(i)));
+        }
+        journal.close();
+        var sizeBefore = Files.size(directory.resolve("state.journal"));
+        journal = null;
+
+        open(true);
+
+        assertThat(Files.size(directory.resolve("state.journal"))).isLessThan(sizeBefore);
+        assertThat(replay()).extracting(it -> it.getProperties().get("id")).containsExactly("99");
+    }
+
+    @Test
+    void test_journalIsCompactedWhileRunning_ok() throws IOException {
+        var file = directory.resolve("state.journal");
+        journal = new StateJournal(file, true, 16 * 1024);
+        var contextManager = contextManager();
+        for (int i = 0; i < 1000; i++) {
+            contextManager.createOrUpdateContextList(UUID.randomUUID().toString(), "context", list -> list.add(Map.of("id", "1")));
+            contextManager.createOrUpdateContextList(UUID.randomUUID().toString(), "context", list -> list.remove(0));
+        }
+
+        assertThat(Files.size(file)).isLessThan(64 * 1024);
+
+        open(true);
+
+        assertThat(replay()).hasSize(1).allSatisfy(it -> assertThat(it.getUpdateCount()).isEqualTo(2000));
+    }
+
+    @Test
+    void test_failedReopenClosesJournal_ok() throws IOException {
+        var file = directory.resolve("state.journal");
+        journal = new StateJournal(file, true, 16 * 1024);
+        var contextManager = contextManager();
+        // the journal can neither be compacted nor reopened once its file is replaced by a directory
+        Files.delete(file);
+        Files.createDirectory(file);
+
+        assertThatThrownBy(() -> {
+            for (int i = 0; i < 10_000; i++) {
+                contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), "context", Map.of("id", String.valueOf(i)));
+            }
+        }).isInstanceOfAny(IllegalStateException.class, UncheckedIOException.class);
+        assertThatThrownBy(() -> journal.delete("context")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void test_writeAfterClose_fails() {
+        open(false).close();
+
+        assertThatThrownBy(() -> journal.delete("context")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void test_tornRecordIsIgnored_ok() throws IOException {
+        open(true);
+        var contextManager = contextManager();
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), "first", Map.of("id", "1"));
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), "second", Map.of("id", "2"));
+        journal.close();
+        var file = directory.resolve("state.journal");
+        var bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        journal = null;
+
+        open(true);
+
+        assertThat(replay().stream().map(Context::getContextName).collect(Collectors.toList())).containsExactly("first");
+    }
+}
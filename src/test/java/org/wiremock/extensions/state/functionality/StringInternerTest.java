@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.StringInterner;
+import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.TransactionManager;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StringInternerTest {
+
+    private final StringInterner interner = new StringInterner(1000, 10);
+    private final ContextManager contextManager = new ContextManager(new CaffeineStore(), new TransactionManager(), null, interner);
+
+    @Test
+    void test_propertiesAreShared_ok() {
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), "first", Map.of(new String("status"), new String("active")));
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), "second", Map.of(new String("status"), new String("active")));
+
+        var first = contextManager.getContext("first").orElseThrow().getProperties();
+        var second = contextManager.getContext("second").orElseThrow().getProperties();
+        assertThat(second.keySet().iterator().next()).isSameAs(first.keySet().iterator().next());
+        assertThat(second.get("status")).isSameAs(first.get("status"));
+        assertThat(interner.getSavedCount()).isEqualTo(2);
+        assertThat(interner.getSavedBytes()).isEqualTo(2 * 40 + "status".length() + "active".length());
+    }
+
+    @Test
+    void test_listEntriesAreShared_ok() {
+        var first = contextManager.internProperties(Map.of("status", new String("active")));
+        var second = contextManager.internProperties(Map.of("status", new String("active")));
+
+        assertThat(second.get("status")).isSameAs(first.get("status"));
+    }
+
+    @Test
+    void test_longValuesAreNotInterned_ok() {
+        var value = "0123456789abcdef";
+
+        assertThat(interner.intern(value)).isSameAs(value);
+        assertThat(interner.intern(new String(value))).isNotSameAs(value);
+        assertThat(interner.getSavedCount()).isZero();
+    }
+}
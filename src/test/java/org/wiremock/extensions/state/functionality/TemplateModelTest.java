@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.internal.model.TemplateModel;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TemplateModelTest {
+
+    @Test
+    void test_entriesAreCreatedOnAccessOnly_ok() {
+        var requestCount = new AtomicInteger();
+        var responseCount = new AtomicInteger();
+        var model = new TemplateModel()
+            .with("request", () -> "request-" + requestCount.incrementAndGet())
+            .with("response", () -> "response-" + responseCount.incrementAndGet());
+
+        assertThat(model.get("request")).isEqualTo("request-1");
+        assertThat(model.get("request")).isEqualTo("request-1");
+        assertThat(model.containsKey("response")).isTrue();
+        assertThat(requestCount).hasValue(1);
+        assertThat(responseCount).hasValue(0);
+    }
+
+    @Test
+    void test_putAndIterate_ok() {
+        var model = new TemplateModel()
+            .with("request", () -> "request")
+            .with("response", () -> null);
+
+        model.put("context", "context");
+
+        assertThat(model)
+            .hasSize(3)
+            .containsEntry("request", "request")
+            .containsEntry("context", "context")
+            .containsEntry("response", null);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.TransactionManager;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionManagerTest {
+
+    // names differing in their last character only are guarded by neighbouring lock stripes
+    private static final String LOCKED_CONTEXT = "context-1";
+    private static final String OTHER_CONTEXT = "context-2";
+
+    private final TransactionManager transactionManager = new TransactionManager();
+    private final ContextManager contextManager = new ContextManager(new CaffeineStore(), transactionManager);
+
+    @Test
+    void test_concurrentUpdatesOfSameContext_ok() throws InterruptedException {
+        var executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            var requestId = UUID.randomUUID().toString();
+            var index = String.valueOf(i);
+            executor.submit(() -> {
+                contextManager.createOrUpdateContextList(requestId, "shared", list -> list.addLast(Map.of("index", index)));
+                contextManager.createOrUpdateContextState(requestId, "shared", Map.of("last", index));
+                transactionManager.deleteTransactions(requestId);
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(contextManager.getContext("shared"))
+            .hasValueSatisfying(it -> {
+                assertThat(it.getList()).hasSize(1000);
+                assertThat(it.getUpdateCount()).isEqualTo(1000);
+            });
+    }
+
+    @Test
+    void test_lockedContextDoesNotBlockOtherStripes_ok() throws Exception {
+        var locked = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var holder = new Thread(() -> transactionManager.withTransaction(UUID.randomUUID().toString(), LOCKED_CONTEXT, transaction -> {
+            locked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        holder.start();
+        try {
+            assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+
+            CompletableFuture.runAsync(() -> updateContext(OTHER_CONTEXT)).get(5, TimeUnit.SECONDS);
+            var blocked = CompletableFuture.runAsync(() -> updateContext(LOCKED_CONTEXT));
+            assertThatThrownBy(() -> blocked.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+            release.countDown();
+            blocked.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+        assertThat(contextManager.exists(OTHER_CONTEXT)).isTrue();
+        assertThat(contextManager.exists(LOCKED_CONTEXT)).isTrue();
+    }
+
+    private void updateContext(String contextName) {
+        var requestId = UUID.randomUUID().toString();
+        contextManager.createOrUpdateContextState(requestId, contextName, Map.of("key", "value"));
+        transactionManager.deleteTransactions(requestId);
+    }
+}